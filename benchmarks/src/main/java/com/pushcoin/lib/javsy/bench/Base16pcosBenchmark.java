@@ -0,0 +1,127 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Base16pcos;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Payment-code codec. The normalize input mimics a code typed by
+	a user: lower-case, grouped by dashes; normalizeCase takes it
+	lower-case only, as pasted.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base16pcosBenchmark
+{
+	@Param({"8", "32", "256"})
+	int size;
+
+	byte[] bytes;
+	String printable;
+	String typed;
+	String lowerCase;
+
+	char[] charsOut;
+	byte[] bytesOut;
+
+	@Setup
+	public void setUp()
+	{
+		bytes = new byte[size];
+		new Random( 42 ).nextBytes( bytes );
+
+		printable = Base16pcos.encode( bytes );
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < printable.length(); ++i)
+		{
+			if (i > 0 && i % 4 == 0) {
+				sb.append( '-' );
+			}
+			sb.append( Character.toLowerCase( printable.charAt(i) ) );
+		}
+		typed = sb.toString();
+		lowerCase = printable.toLowerCase();
+
+		charsOut = new char[size * 2];
+		bytesOut = new byte[size];
+	}
+
+	@Benchmark
+	public String encode()
+	{
+		return Base16pcos.encode( bytes );
+	}
+
+	@Benchmark
+	public char[] encodeIntoChars()
+	{
+		Base16pcos.encode( bytes, 0, size, charsOut, 0 );
+		return charsOut;
+	}
+
+	@Benchmark
+	public byte[] decode()
+	{
+		return Base16pcos.decode( printable, false );
+	}
+
+	@Benchmark
+	public byte[] decodeIntoBytes()
+	{
+		Base16pcos.decode( printable, 0, printable.length(), false, bytesOut, 0 );
+		return bytesOut;
+	}
+
+	@Benchmark
+	public String normalize()
+	{
+		return Base16pcos.normalize( typed );
+	}
+
+	@Benchmark
+	public String normalizeCase()
+	{
+		return Base16pcos.normalize( lowerCase );
+	}
+
+	@Benchmark
+	public byte[] decodeTyped()
+	{
+		return Base16pcos.decode( typed, true );
+	}
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Binascii;
+import com.pushcoin.lib.javsy.HexDecodingInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Hex codec, from transaction-ID sized inputs up to bulk blobs.
+	The *Into* variants write to preallocated buffers and should
+	not allocate at all. The stream* variants decode through
+	HexDecodingInputStream, one byte at a time and into a buffer.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinasciiBenchmark
+{
+	@Param({"16", "32", "256", "4096", "65536"})
+	int size;
+
+	byte[] bytes;
+	String hex;
+	byte[] hexAscii;
+
+	char[] charsOut;
+	byte[] asciiOut;
+	byte[] bytesOut;
+
+	@Setup
+	public void setUp()
+	{
+		bytes = new byte[size];
+		new Random( 42 ).nextBytes( bytes );
+		hex = Binascii.hexlify( bytes );
+		hexAscii = new byte[size * 2];
+		Binascii.hexlify( bytes, 0, size, hexAscii, 0 );
+
+		charsOut = new char[size * 2];
+		asciiOut = new byte[size * 2];
+		bytesOut = new byte[size];
+	}
+
+	@Benchmark
+	public String hexlify()
+	{
+		return Binascii.hexlify( bytes );
+	}
+
+	@Benchmark
+	public char[] hexlifyIntoChars()
+	{
+		Binascii.hexlify( bytes, 0, size, charsOut, 0 );
+		return charsOut;
+	}
+
+	@Benchmark
+	public byte[] hexlifyIntoAscii()
+	{
+		Binascii.hexlify( bytes, 0, size, asciiOut, 0 );
+		return asciiOut;
+	}
+
+	@Benchmark
+	public byte[] unhexlify()
+	{
+		return Binascii.unhexlify( hex );
+	}
+
+	@Benchmark
+	public byte[] unhexlifyIntoBytes()
+	{
+		Binascii.unhexlify( hex, 0, hex.length(), bytesOut, 0 );
+		return bytesOut;
+	}
+
+	@Benchmark
+	public byte[] unhexlifyAsciiIntoBytes()
+	{
+		Binascii.unhexlify( hexAscii, 0, hexAscii.length, bytesOut, 0 );
+		return bytesOut;
+	}
+
+	@Benchmark
+	public int streamReadByte() throws IOException
+	{
+		InputStream in = new HexDecodingInputStream( new ByteArrayInputStream( hexAscii ) );
+		int last = 0;
+		for (int b; (b = in.read()) >= 0; ) {
+			last = b;
+		}
+		return last;
+	}
+
+	@Benchmark
+	public byte[] streamReadIntoBytes() throws IOException
+	{
+		InputStream in = new HexDecodingInputStream( new ByteArrayInputStream( hexAscii ) );
+		for (int off = 0, n; (n = in.read( bytesOut, off, size - off )) > 0; ) {
+			off += n;
+		}
+		return bytesOut;
+	}
+}
@@ -0,0 +1,111 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.CurrencyConverter;
+import com.pushcoin.lib.javsy.ExchangeRateProvider;
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyColumn;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Converting 1000 USD prices to EUR at a cached rate: one at a time with
+	CurrencyConverter, as a batch, as a MoneyColumn, and by multiplying the
+	amounts with the rate as a BigDecimal and rounding, the way callers did
+	before.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyConverterBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+	static final Currency EUR = Currency.getInstance( "EUR" );
+	static final BigDecimal RATE = new BigDecimal( "0.921347" );
+
+	Money[] prices;
+	MoneyColumn column;
+	CurrencyConverter converter;
+
+	@Setup
+	public void setUp()
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		Random rnd = new Random( 24 );
+		prices = new Money[1000];
+		for (int i = 0; i < prices.length; ++i) {
+			prices[i] = new Money( BigDecimal.valueOf( rnd.nextInt( 10000000 ), 2 ), USD );
+		}
+		column = MoneyColumn.of( Arrays.asList( prices ), USD, RoundingMode.HALF_EVEN );
+		converter = new CurrencyConverter( new ExchangeRateProvider() {
+			public BigDecimal getRate( Currency from, Currency to ) { return RATE; }
+		}, 1, TimeUnit.HOURS );
+	}
+
+	@Benchmark
+	public Money convert()
+	{
+		Money last = null;
+		for (Money price : prices) {
+			last = converter.convert( price, EUR );
+		}
+		return last;
+	}
+
+	@Benchmark
+	public Money[] convertBatch()
+	{
+		return converter.convert( prices, EUR );
+	}
+
+	@Benchmark
+	public MoneyColumn convertColumn()
+	{
+		return converter.convert( column, EUR );
+	}
+
+	@Benchmark
+	public Money convertViaBigDecimal()
+	{
+		Money last = null;
+		for (Money price : prices) {
+			last = new Money( price.getAmount().multiply( RATE ).setScale( 2, RoundingMode.HALF_EVEN ), EUR );
+		}
+		return last;
+	}
+}
@@ -0,0 +1,54 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+	Entry point of benchmarks.jar. Takes the usual JMH command line, and
+	always adds the GC profiler, so that allocation per operation is
+	reported next to the timings.
+*/
+public class Main
+{
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions cmdLine = new CommandLineOptions( args );
+		if (cmdLine.shouldHelp())
+		{
+			cmdLine.showHelp();
+			return;
+		}
+
+		Options options = new OptionsBuilder()
+			.parent( cmdLine )
+			.addProfiler( GCProfiler.class )
+			.build();
+		Runner runner = new Runner( options );
+		if (cmdLine.shouldList()) {
+			runner.list();
+		} else {
+			runner.run();
+		}
+	}
+}
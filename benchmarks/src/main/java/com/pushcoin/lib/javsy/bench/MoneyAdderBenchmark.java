@@ -0,0 +1,87 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyAdder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Several threads adding 5.00 payments to one shared total: casPlus
+	updates an AtomicReference<Money> with plus in a compare-and-set
+	loop, and adder goes through a MoneyAdder. Change the number of
+	threads with -t.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MoneyAdderBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+
+	Money payment;
+	AtomicReference<Money> total;
+	MoneyAdder adder;
+
+	@Setup
+	public void setUp()
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		payment = new Money( new BigDecimal( "5.00" ), USD );
+		total = new AtomicReference<Money>( new Money( BigDecimal.ZERO, USD ) );
+		adder = new MoneyAdder( USD );
+	}
+
+	@Benchmark
+	public void casPlus()
+	{
+		for (;;) {
+			Money current = total.get();
+			if (total.compareAndSet( current, current.plus( payment ) )) {
+				return;
+			}
+		}
+	}
+
+	@Benchmark
+	public void adder()
+	{
+		adder.add( payment );
+	}
+}
@@ -0,0 +1,270 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.FastMoney;
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyFormat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Single Money operations on typical point-of-sale amounts, and the
+	same operations on FastMoney (the fast* benchmarks). The create*
+	benchmarks make a 5.00 tip from cents.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+	static final BigDecimal TAX_RATE = new BigDecimal( "0.0725" );
+	static final String PRICE_TEXT = "1234.56 USD";
+
+	Money price;
+	Money tip;
+
+	FastMoney fastPrice;
+	FastMoney fastTip;
+
+	StringBuilder text = new StringBuilder();
+
+	@Setup
+	public void setUp()
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		price = new Money( new BigDecimal( "1234.56" ), USD, RoundingMode.HALF_EVEN );
+		tip = new Money( new BigDecimal( "5.00" ), USD, RoundingMode.HALF_EVEN );
+		fastPrice = FastMoney.of( price );
+		fastTip = FastMoney.of( tip );
+	}
+
+	@Benchmark
+	public Money createNew()
+	{
+		return new Money( BigDecimal.valueOf( 500, 2 ), USD );
+	}
+
+	@Benchmark
+	public Money createOf()
+	{
+		return Money.of( 500, USD );
+	}
+
+	@Benchmark
+	public Money createOfUncached()
+	{
+		return Money.of( 123456, USD );
+	}
+
+	@Benchmark
+	public Money plus()
+	{
+		return price.plus( tip );
+	}
+
+	@Benchmark
+	public Money minus()
+	{
+		return price.minus( tip );
+	}
+
+	@Benchmark
+	public Money timesInt()
+	{
+		return price.times( 3 );
+	}
+
+	@Benchmark
+	public Money timesDouble()
+	{
+		return price.times( 0.0725 );
+	}
+
+	/** What timesDouble did before it stopped going through a String. */
+	@Benchmark
+	public BigDecimal timesDoubleViaString()
+	{
+		return price.getAmount().multiply( new BigDecimal( Double.toString( 0.0725 ) ) ).setScale( 2, RoundingMode.HALF_EVEN );
+	}
+
+	@Benchmark
+	public Money timesBigDecimal()
+	{
+		return price.times( TAX_RATE );
+	}
+
+	@Benchmark
+	public Money timesScaled()
+	{
+		return price.times( 725, 4 );
+	}
+
+	@Benchmark
+	public Money divInt()
+	{
+		return price.div( 3 );
+	}
+
+	@Benchmark
+	public Money divDouble()
+	{
+		return price.div( 1.5 );
+	}
+
+	@Benchmark
+	public Money[] allocate()
+	{
+		return price.allocate( 3 );
+	}
+
+	/** Splitting in three with div, the last part taking what is left. */
+	@Benchmark
+	public Money[] allocateViaDiv()
+	{
+		Money[] parts = new Money[3];
+		Money rest = price;
+		for (int i = 0; i < 2; ++i) {
+			parts[i] = price.div( 3 );
+			rest = rest.minus( parts[i] );
+		}
+		parts[2] = rest;
+		return parts;
+	}
+
+	@Benchmark
+	public int compareTo()
+	{
+		return price.compareTo( tip );
+	}
+
+	@Benchmark
+	public boolean gt()
+	{
+		return price.gt( tip );
+	}
+
+	@Benchmark
+	public String toStringCall()
+	{
+		return price.toString();
+	}
+
+	/** What toString did before the symbol was cached. */
+	@Benchmark
+	public String toStringViaPlainString()
+	{
+		return price.getAmount().toPlainString() + " " + price.getCurrency().getSymbol();
+	}
+
+	@Benchmark
+	public String format()
+	{
+		return MoneyFormat.format( price );
+	}
+
+	@Benchmark
+	public StringBuilder formatToAppendable() throws IOException
+	{
+		text.setLength( 0 );
+		MoneyFormat.format( price, text );
+		return text;
+	}
+
+	@Benchmark
+	public Money parse()
+	{
+		return MoneyFormat.parse( PRICE_TEXT );
+	}
+
+	/** Parsing the same text with String.split, BigDecimal and Currency. */
+	@Benchmark
+	public Money parseViaBigDecimal()
+	{
+		String[] parts = PRICE_TEXT.split( " " );
+		return new Money( new BigDecimal( parts[0] ), Currency.getInstance( parts[1] ) );
+	}
+
+	@Benchmark
+	public FastMoney fastPlus()
+	{
+		return fastPrice.plus( fastTip );
+	}
+
+	@Benchmark
+	public FastMoney fastMinus()
+	{
+		return fastPrice.minus( fastTip );
+	}
+
+	@Benchmark
+	public FastMoney fastTimesInt()
+	{
+		return fastPrice.times( 3 );
+	}
+
+	@Benchmark
+	public FastMoney fastTimesDouble()
+	{
+		return fastPrice.times( 0.0725 );
+	}
+
+	@Benchmark
+	public FastMoney fastDivInt()
+	{
+		return fastPrice.div( 3 );
+	}
+
+	@Benchmark
+	public FastMoney fastDivDouble()
+	{
+		return fastPrice.div( 1.5 );
+	}
+
+	@Benchmark
+	public int fastCompareTo()
+	{
+		return fastPrice.compareTo( fastTip );
+	}
+
+	@Benchmark
+	public boolean fastGt()
+	{
+		return fastPrice.gt( fastTip );
+	}
+}
@@ -0,0 +1,113 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Writing and reading a price of 1234.56 USD with MoneyCodec, into a
+	reused ByteBuffer, and with Java serialization, the codec*
+	and serial* benchmarks respectively.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyCodecBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+
+	Money price;
+	ByteBuffer buffer;
+	ByteBuffer encoded;
+	byte[] serialized;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		price = new Money( new BigDecimal( "1234.56" ), USD, RoundingMode.HALF_EVEN );
+		buffer = ByteBuffer.allocate( MoneyCodec.MAX_COMPACT_SIZE );
+		encoded = ByteBuffer.allocate( MoneyCodec.MAX_COMPACT_SIZE );
+		MoneyCodec.write( price, encoded );
+		encoded.flip();
+		serialized = serialize( price );
+	}
+
+	@Benchmark
+	public ByteBuffer codecWrite()
+	{
+		buffer.clear();
+		MoneyCodec.write( price, buffer );
+		return buffer;
+	}
+
+	@Benchmark
+	public Money codecRead()
+	{
+		encoded.rewind();
+		return MoneyCodec.read( encoded );
+	}
+
+	@Benchmark
+	public byte[] serialWrite() throws IOException
+	{
+		return serialize( price );
+	}
+
+	@Benchmark
+	public Object serialRead() throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( serialized ) );
+		return in.readObject();
+	}
+
+	static byte[] serialize( Money money ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( money );
+		out.close();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,117 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyAccumulator;
+import com.pushcoin.lib.javsy.MoneyColumn;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	Money.sum over ledger-like collections: amounts in cents up to
+	10,000.00, all in one currency. parallelSum goes through
+	Money.parallelSum, and columnSum sums the same amounts held in a
+	MoneyColumn. plusLoop and accumulate keep a running balance, with
+	Money.plus and with a MoneyAccumulator.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneySumBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+
+	@Param({"10", "1000", "100000"})
+	int count;
+
+	List<Money> amounts;
+	MoneyColumn column;
+
+	@Setup
+	public void setUp()
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		Random rnd = new Random( 42 );
+		amounts = new ArrayList<Money>( count );
+		for (int i = 0; i < count; ++i) {
+			amounts.add( new Money( BigDecimal.valueOf( rnd.nextInt( 1000000 ), 2 ), USD, RoundingMode.HALF_EVEN ) );
+		}
+		column = MoneyColumn.of( amounts, USD, RoundingMode.HALF_EVEN );
+	}
+
+	@Benchmark
+	public Money sum()
+	{
+		return Money.sum( amounts, USD );
+	}
+
+	@Benchmark
+	public Money parallelSum()
+	{
+		return Money.parallelSum( amounts, USD );
+	}
+
+	@Benchmark
+	public Money columnSum()
+	{
+		return column.sum();
+	}
+
+	@Benchmark
+	public Money plusLoop()
+	{
+		Money balance = new Money( BigDecimal.ZERO, USD, RoundingMode.HALF_EVEN );
+		for (Money amount : amounts) {
+			balance = balance.plus( amount );
+		}
+		return balance;
+	}
+
+	@Benchmark
+	public Money accumulate()
+	{
+		MoneyAccumulator balance = new MoneyAccumulator( USD, RoundingMode.HALF_EVEN );
+		for (Money amount : amounts) {
+			balance.add( amount );
+		}
+		return balance.toMoney();
+	}
+}
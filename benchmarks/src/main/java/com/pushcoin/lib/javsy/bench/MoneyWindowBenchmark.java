@@ -0,0 +1,112 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+package com.pushcoin.lib.javsy.bench;
+
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyWindow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.Currency;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+	A one-minute revenue total, by the second, over a stream of 10,000
+	payments about 10 ms apart, read after every 100 payments. window
+	keeps it in a MoneyWindow; resum keeps the payments of the last
+	minute in a queue and totals them with Money.sum on each read.
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyWindowBenchmark
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+	static final long SECOND = 1000;
+	static final int SECONDS = 60;
+	static final int READ_EVERY = 100;
+
+	Money[] payments;
+	long[] times;
+
+	@Setup
+	public void setUp()
+	{
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		Random rnd = new Random( 25 );
+		payments = new Money[10000];
+		times = new long[payments.length];
+		long time = 0;
+		for (int i = 0; i < payments.length; ++i) {
+			payments[i] = new Money( BigDecimal.valueOf( rnd.nextInt( 100000 ), 2 ), USD, RoundingMode.HALF_EVEN );
+			time += rnd.nextInt( 20 );
+			times[i] = time;
+		}
+	}
+
+	@Benchmark
+	public Money window()
+	{
+		MoneyWindow window = new MoneyWindow( USD, SECOND, SECONDS );
+		Money total = null;
+		for (int i = 0; i < payments.length; ++i) {
+			window.add( payments[i], times[i] );
+			if (i % READ_EVERY == READ_EVERY - 1) {
+				total = window.getTotal( times[i] );
+			}
+		}
+		return total;
+	}
+
+	@Benchmark
+	public Money resum()
+	{
+		ArrayDeque<Money> inWindow = new ArrayDeque<Money>();
+		ArrayDeque<Long> inWindowTimes = new ArrayDeque<Long>();
+		Money total = null;
+		for (int i = 0; i < payments.length; ++i) {
+			inWindow.add( payments[i] );
+			inWindowTimes.add( times[i] );
+			if (i % READ_EVERY == READ_EVERY - 1) {
+				long start = (times[i] / SECOND - SECONDS + 1) * SECOND;
+				while (inWindowTimes.peek() < start) {
+					inWindowTimes.remove();
+					inWindow.remove();
+				}
+				total = Money.sum( inWindow, USD );
+			}
+		}
+		return total;
+	}
+}
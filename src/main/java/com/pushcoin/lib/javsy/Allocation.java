@@ -0,0 +1,172 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+* Exact split of a number of minor units by ratios, with the largest remainder method.
+*
+* <P>Each part first gets its share rounded toward zero, <tt>total * ratio / sum of
+* ratios</tt>. The units left over, fewer than the number of parts, then go one each
+* to the parts whose shares lost the most to that rounding, the earlier part first
+* among equals. The parts add up to the total exactly.
+*
+* <P>The work is done in <tt>long</tt>s; the <tt>BigInteger</tt> methods are for
+* totals, or products of a total and a ratio, that do not fit.
+*/
+final class Allocation {
+  private Allocation() {}
+
+  /** 
+  * Check the ratios, and return their sum.
+  * @throws IllegalArgumentException unless there is at least one ratio, none is 
+  * negative, and they do not all equal 0.
+  */
+  static BigInteger checkRatios(long[] aRatios){
+    if ( aRatios.length == 0 ) {
+      throw new IllegalArgumentException("No ratios to allocate by");
+    }
+    BigInteger sum = BigInteger.ZERO;
+    for(long ratio : aRatios){
+      if ( ratio < 0 ) {
+        throw new IllegalArgumentException("Ratio cannot be negative: " + ratio);
+      }
+      sum = sum.add(BigInteger.valueOf(ratio));
+    }
+    if ( sum.signum() == 0 ) {
+      throw new IllegalArgumentException("Ratios cannot all be 0");
+    }
+    return sum;
+  }
+
+  /** Split <tt>aTotal</tt> into <tt>aParts</tt> parts; the first parts take the units left over. */
+  static long[] split(long aTotal, int aParts){
+    long share = aTotal / aParts;
+    long leftover = aTotal % aParts;
+    long[] result = new long[aParts];
+    Arrays.fill(result, share);
+    long unit = leftover < 0 ? -1 : 1;
+    for(int i = 0; i < Math.abs(leftover); ++i){
+      result[i] += unit;
+    }
+    return result;
+  }
+
+  /**
+  * Split <tt>aTotal</tt> by <tt>aRatios</tt>, already checked.
+  * @throws ArithmeticException if a product of the total and a ratio, or the sum of
+  * the ratios, does not fit in a <tt>long</tt>.
+  */
+  static long[] split(long aTotal, long[] aRatios){
+    long sum = 0;
+    for(long ratio : aRatios){
+      sum = MinorUnits.addExact(sum, ratio);
+    }
+    if ( aTotal == Long.MIN_VALUE ) {
+      throw new ArithmeticException("long overflow");
+    }
+    // shares of the magnitude, given the sign at the end
+    long magnitude = Math.abs(aTotal);
+    int n = aRatios.length;
+    long[] result = new long[n];
+    long[] remainders = new long[n];
+    long leftover = magnitude;
+    for(int i = 0; i < n; ++i){
+      long product = MinorUnits.multiplyExact(magnitude, aRatios[i]);
+      result[i] = product / sum;
+      remainders[i] = product % sum;
+      leftover -= result[i];
+    }
+    if ( leftover > 0 ) {
+      // the leftover-th largest remainder, and how many parts above it take a unit
+      long[] sorted = remainders.clone();
+      Arrays.sort(sorted);
+      long threshold = sorted[n - (int)leftover];
+      int numAbove = 0;
+      for(long remainder : remainders){
+        if ( remainder > threshold ) {
+          ++numAbove;
+        }
+      }
+      int numAtThreshold = (int)leftover - numAbove;
+      for(int i = 0; i < n; ++i){
+        if ( remainders[i] > threshold ) {
+          ++result[i];
+        }
+        else if ( remainders[i] == threshold && numAtThreshold > 0 ) {
+          ++result[i];
+          --numAtThreshold;
+        }
+      }
+    }
+    if ( aTotal < 0 ) {
+      for(int i = 0; i < n; ++i){
+        result[i] = -result[i];
+      }
+    }
+    return result;
+  }
+
+  /** As {@link #split(long, long[])}, for any total; <tt>aSum</tt> is the sum of the ratios. */
+  static BigInteger[] split(BigInteger aTotal, long[] aRatios, BigInteger aSum){
+    BigInteger magnitude = aTotal.abs();
+    int n = aRatios.length;
+    BigInteger[] result = new BigInteger[n];
+    BigInteger[] remainders = new BigInteger[n];
+    BigInteger leftover = magnitude;
+    for(int i = 0; i < n; ++i){
+      BigInteger[] quotientAndRemainder = magnitude.multiply(BigInteger.valueOf(aRatios[i])).divideAndRemainder(aSum);
+      result[i] = quotientAndRemainder[0];
+      remainders[i] = quotientAndRemainder[1];
+      leftover = leftover.subtract(result[i]);
+    }
+    // fewer units are left over than there are parts
+    int numLeftover = leftover.intValue();
+    if ( numLeftover > 0 ) {
+      BigInteger[] sorted = remainders.clone();
+      Arrays.sort(sorted);
+      BigInteger threshold = sorted[n - numLeftover];
+      int numAbove = 0;
+      for(BigInteger remainder : remainders){
+        if ( remainder.compareTo(threshold) > 0 ) {
+          ++numAbove;
+        }
+      }
+      int numAtThreshold = numLeftover - numAbove;
+      for(int i = 0; i < n; ++i){
+        int comparison = remainders[i].compareTo(threshold);
+        if ( comparison > 0 ) {
+          result[i] = result[i].add(BigInteger.ONE);
+        }
+        else if ( comparison == 0 && numAtThreshold > 0 ) {
+          result[i] = result[i].add(BigInteger.ONE);
+          --numAtThreshold;
+        }
+      }
+    }
+    if ( aTotal.signum() < 0 ) {
+      for(int i = 0; i < n; ++i){
+        result[i] = result[i].negate();
+      }
+    }
+    return result;
+  }
+}
@@ -19,9 +19,7 @@
 package com.pushcoin.lib.javsy;
 
 import java.util.Arrays;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Locale;
 
 /**
 	PushCoin version of the Base16 codec.  Uses alphabet that 
@@ -35,17 +33,37 @@ public class Base16pcos
 	*/
 	public static String normalize( String input )
 	{
-		StringBuilder purified = new StringBuilder(input.length());
-		// We only use upper-case letters
-		String upperCase = input.toUpperCase();
-		for(int i = 0, n = upperCase.length() ; i < n ; ++i)
+		final int n = input.length();
+		// allocated only once a character has to be dropped
+		char[] purified = null;
+		int count = 0;
+		boolean folded = false;
+		for(int i = 0 ; i < n ; ++i)
 		{ 
-			char chr = upperCase.charAt(i);
-			if ( Collections.binarySearch( sortedAlphabet_, chr ) >= 0) {
-				purified.append( chr );
+			char chr = input.charAt(i);
+			// we only use upper-case letters; zero means not in the alphabet
+			char symbol = chr < foldedSymbol_.length ? foldedSymbol_[chr] : 0;
+			if (purified == null)
+			{
+				if (symbol != 0)
+				{
+					folded |= symbol != chr;
+					continue;
+				}
+				purified = new char[n - 1];
+				for (; count < i; ++count) {
+					purified[count] = foldedSymbol_[ input.charAt(count) ];
+				}
+			}
+			if (symbol != 0) {
+				purified[count++] = symbol;
 			}
 		}
-		return purified.toString();
+		if (purified != null) {
+			return new String( purified, 0, count );
+		}
+		// nothing dropped: upper-casing builds the result without a buffer of ours
+		return folded ? input.toUpperCase( Locale.ROOT ) : input;
 	}
 
 	public static String encode(byte[] bytes)
@@ -53,15 +71,29 @@ public class Base16pcos
 		if (bytes == null)
 			return null;
 
-		StringBuilder printable = new StringBuilder(bytes.length * 2);
+		char[] printable = new char[bytes.length * 2];
+		encode( bytes, 0, bytes.length, printable, 0 );
+		return new String( printable );
+	}
+
+	/**
+		Encodes len bytes from src, starting at srcOff, into dst at dstOff,
+		without allocating.
 
-		for (int i=0; i < bytes.length; ++i) 
+		Returns the number of chars written, always 2 * len.
+	*/
+	public static int encode(byte[] src, int srcOff, int len, char[] dst, int dstOff)
+	{
+		checkRange( src.length, srcOff, len );
+		checkRange( dst.length, dstOff, len * 2 );
+
+		for (int i = srcOff, j = dstOff, end = srcOff + len; i < end; ++i)
 		{
-			byte b = bytes[i];
-			printable.append( alphabet_[ (int)(b & 0xf0) >> 4].charValue() );
-			printable.append( alphabet_[ (int)(b & 0x0f)].charValue() );
-		}      
-		return printable.toString();
+			byte b = src[i];
+			dst[j++] = alphabet_[ (b & 0xf0) >> 4 ];
+			dst[j++] = alphabet_[ b & 0x0f ];
+		}
+		return len * 2;
 	}
 
 	/**
@@ -73,94 +105,108 @@ public class Base16pcos
 		if (printable == null)
 			return null;
 
-		if (cleanUp) {
-			printable = normalize( printable );
-		}
-
 		final int sz = printable.length();
-		if( (sz % 2) != 0) {
+		if( !cleanUp && (sz % 2) != 0) {
 			throw new RuntimeException( "Base16pcos decode input must be even-length: " + printable);
 		}
 
-    byte[] data = new byte[sz / 2];
-    for (int i = 0; i < sz; ) 
-		{
-			int lft_qrt = printable.charAt(i++) - PCOS_B16_LOW_BOUND_ASCII_CH;
-			int rhs_qrt = printable.charAt(i++) - PCOS_B16_LOW_BOUND_ASCII_CH;
+		byte[] data = new byte[sz / 2];
+		int written = decode( printable, 0, sz, cleanUp, data, 0 );
+		return (written == data.length) ? data : Arrays.copyOf( data, written );
+	}
+
+	/**
+		Decodes len chars of printable, starting at off, into dst at dstOff,
+		without allocating.
+
+		If cleanUp is true, characters outside the alphabet are skipped and
+		lower-case letters are accepted, same as decoding normalize(printable),
+		but in a single pass and without the intermediate string.
 
-			/* check if quarts are within bounds */
-			if (lft_qrt < 0 || rhs_qrt < 0 || lft_qrt > (symbolToQuart.length-1) || rhs_qrt > (symbolToQuart.length-1) )
+		Returns the number of bytes written, which is len / 2 unless
+		characters were skipped. dst must have room for len / 2 bytes
+		either way, so that nothing is written when it is too small.
+	*/
+	public static int decode(CharSequence printable, int off, int len, boolean cleanUp, byte[] dst, int dstOff)
+	{
+		checkRange( printable.length(), off, len );
+		checkRange( dst.length, dstOff, len / 2 );
+		final byte[] symbolToQuart = cleanUp ? foldedQuart_ : symbolToQuart_;
+
+		int symbols = 0;
+		int lft_qrt = 0;
+		for (int i = off, end = off + len; i < end; ++i)
+		{
+			char chr = printable.charAt(i);
+			int quart = chr < symbolToQuart.length ? symbolToQuart[chr] : -1;
+			if (quart < 0)
 			{
-				throw new RuntimeException( "Base16pcos decode run into an invalid character: " + printable);
+				if (cleanUp) {
+					continue;
+				}
+				throw new RuntimeException( "Base16pcos decode run into an invalid character '" + chr + "' at index " + i + ": " + printable);
 			}
 
-			SymbolDef lftp = symbolToQuart[lft_qrt];
-			SymbolDef rhsp = symbolToQuart[rhs_qrt];
-
-			// check if quart represents a valid alphabet letter
-			if (! (lftp.isValid && rhsp.isValid) ) {
-				throw new RuntimeException( "Base16pcos decode run into an invalid character: " + printable);
+			if ((symbols++ & 1) == 0) {
+				lft_qrt = quart;
+			} else {
+				dst[dstOff++] = (byte) ((lft_qrt << 4) | quart);
 			}
+		}
+
+		if ((symbols % 2) != 0) {
+			throw new RuntimeException( "Base16pcos decode input must have an even number of symbols: " + printable);
+		}
+		return symbols / 2;
+	}
 
-			// ready to assign result
-			data[i / 2] = (byte) ((lftp.value << 4) | rhsp.value);
-    }
-    return data;
+	private static void checkRange(int arrayLen, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > arrayLen - len) {
+			throw new IndexOutOfBoundsException( "Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + arrayLen );
+		}
 	}
 
-	private static final Character[] alphabet_ = {
-		new Character('A'), new Character('C'),
-		new Character('E'), new Character('F'),
-		new Character('H'), new Character('K'),
-		new Character('L'), new Character('N'),
-		new Character('P'), new Character('R'),
-		new Character('T'), new Character('X'),
-		new Character('Y'), new Character('4'),
-		new Character('5'), new Character('7')
+	/**
+		Symbol of each quart, in character order: codes have always been
+		encoded with the alphabet sorted this way, so the order is part of
+		the format.
+	*/
+	private static final char[] alphabet_ = {
+		'4', '5', '7', 'A', 'C', 'E', 'F', 'H',
+		'K', 'L', 'N', 'P', 'R', 'T', 'X', 'Y'
 	};
 
-	private static final List<Character> sortedAlphabet_	= sortInplace( Arrays.asList(alphabet_) );
+	/**
+		Maps each alphabet letter to its quart,
+		any other ASCII character to -1.
+	*/
+	private static final byte[] symbolToQuart_ = new byte[128];
 
-	private static final int PCOS_B16_LOW_BOUND_ASCII_CH = Character.digit('4', 10);
+	/**
+		Same as symbolToQuart_, but also maps lower-case letters.
+	*/
+	private static final byte[] foldedQuart_ = new byte[128];
 
-	private static class SymbolDef
-	{ 
-		final byte value;
-		final boolean isValid;
+	/**
+		Maps both cases of each alphabet letter to its upper-case form,
+		any other ASCII character to zero.
+	*/
+	private static final char[] foldedSymbol_ = new char[128];
 
-		public SymbolDef(int v, boolean f)
+	static
+	{
+		Arrays.fill( symbolToQuart_, (byte) -1 );
+		Arrays.fill( foldedQuart_, (byte) -1 );
+		for (int i = 0; i < alphabet_.length; ++i)
 		{
-			value = (byte)v;
-			isValid = f;
+			char symbol = alphabet_[i];
+			char lower = Character.toLowerCase(symbol);
+			symbolToQuart_[symbol] = (byte) i;
+			foldedQuart_[symbol] = (byte) i;
+			foldedQuart_[lower] = (byte) i;
+			foldedSymbol_[symbol] = symbol;
+			foldedSymbol_[lower] = symbol;
 		}
-	};
-
-	private static List<Character> sortInplace(List<Character> lst)
-	{
-		Collections.sort(lst);
-		return lst;
 	}
-
-	private static final SymbolDef[] symbolToQuart = {
-		new SymbolDef( 13, true  ), new SymbolDef( 14, true ),	 // Four   Five
-		new SymbolDef(  0, false ), new SymbolDef( 15, true ),	 // Six    Seven
-		new SymbolDef(  0, false ), new SymbolDef(  0, false ),	 // Eight  Nine
-		new SymbolDef(  0, false ), new SymbolDef(  0, false ),	 // Colon  Semicolon
-		new SymbolDef(  0, false ), new SymbolDef(  0, false ),	 // Less   Equal
-		new SymbolDef(  0, false ), new SymbolDef(  0, false ),	 // Gretr  ?   
-		new SymbolDef(  0, false ), new SymbolDef(  0, true ),	 // @      A   
-		new SymbolDef(  0, false ), new SymbolDef(  1, true ),	 // B      C   
-		new SymbolDef(  0, false ), new SymbolDef(  2, true ),	 // D      E   
-		new SymbolDef(  3, true  ), new SymbolDef(  0, false ),	 // F      G   
-		new SymbolDef(  4, true  ), new SymbolDef(  0, false ),	 // H      I   
-		new SymbolDef(  0, false ), new SymbolDef(  5, true ),	 // J      K   
-		new SymbolDef(  6, true	 ), new SymbolDef(  0, false ),	 // L      M   
-		new SymbolDef(  7, true	 ), new SymbolDef(  0, false ),	 // N      O   
-		new SymbolDef(  8, true	 ), new SymbolDef(  0, false ),	 // P      Q   
-		new SymbolDef(  9, true	 ), new SymbolDef(  0, false ),	 // R      S   
-		new SymbolDef( 10, true	 ), new SymbolDef(  0, false ),	 // T      U   
-		new SymbolDef(  0, false ), new SymbolDef(  0, false ),	 // V      W   
-		new SymbolDef( 11, true  ), new SymbolDef( 12, true ),	 // X      Y   
-	};
-
 }
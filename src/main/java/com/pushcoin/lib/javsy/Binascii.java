@@ -18,22 +18,155 @@
 
 package com.pushcoin.lib.javsy;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 
 public class Binascii
 {
 	private static final char charGlyph_[] = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+	/**
+		Both glyphs of every byte value, high nibble first, so that
+		encoding takes one table index per byte rather than two.
+	*/
+	private static final char charPairs_[] = new char[512];
+	private static final byte bytePairs_[] = new byte[512];
+	static
+	{
+		for (int b = 0; b < 256; ++b)
+		{
+			charPairs_[2*b] = charGlyph_[ b >> 4 ];
+			charPairs_[2*b+1] = charGlyph_[ b & 0x0f ];
+			bytePairs_[2*b] = (byte) charPairs_[2*b];
+			bytePairs_[2*b+1] = (byte) charPairs_[2*b+1];
+		}
+	}
+
 	public static String hexlify(byte[] bytes)
 	{
-		StringBuilder hexAscii = new StringBuilder(bytes.length * 2);
+		char[] hexAscii = new char[bytes.length * 2];
+		hexlify( bytes, 0, bytes.length, hexAscii, 0 );
+		return new String( hexAscii );
+	}
+
+	/**
+		Writes hex representation of len bytes from src, starting at srcOff,
+		into dst at dstOff. Does not allocate, so that callers can reuse
+		scratch buffers on hot paths.
+
+		Returns the number of chars written, always 2 * len.
+	*/
+	public static int hexlify(byte[] src, int srcOff, int len, char[] dst, int dstOff)
+	{
+		checkRange( src.length, srcOff, len );
+		checkRange( dst.length, dstOff, len * 2 );
+
+		int done = 0;
+		if (bulk_ != null && len >= BULK_THRESHOLD) {
+			done = bulk_.hexlify( src, srcOff, len, dst, dstOff );
+		}
+		for (int i = srcOff + done, j = dstOff + done * 2, end = srcOff + len; i < end; ++i)
+		{
+			int p = (src[i] & 0xff) << 1;
+			dst[j++] = charPairs_[p];
+			dst[j++] = charPairs_[p+1];
+		}
+		return len * 2;
+	}
+
+	/**
+		Same as the char[] variant, but emits ASCII bytes, suitable for
+		writing directly to a stream or a protocol buffer.
+
+		Returns the number of bytes written, always 2 * len.
+	*/
+	public static int hexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		checkRange( src.length, srcOff, len );
+		checkRange( dst.length, dstOff, len * 2 );
+
+		int done = 0;
+		if (bulk_ != null && len >= BULK_THRESHOLD) {
+			done = bulk_.hexlify( src, srcOff, len, dst, dstOff );
+		}
+		for (int i = srcOff + done, j = dstOff + done * 2, end = srcOff + len; i < end; ++i)
+		{
+			int p = (src[i] & 0xff) << 1;
+			dst[j++] = bytePairs_[p];
+			dst[j++] = bytePairs_[p+1];
+		}
+		return len * 2;
+	}
+
+	/**
+		Writes hex representation of the remaining bytes of src into dst as
+		ASCII. Works on heap and direct buffers alike without copying
+		to an intermediate array. Both buffers are advanced; src is
+		fully consumed.
+
+		Returns the number of bytes written, always 2 * src.remaining().
+		Throws BufferOverflowException, leaving both buffers untouched, if
+		dst has less room than that.
+	*/
+	public static int hexlify(ByteBuffer src, ByteBuffer dst)
+	{
+		final int len = src.remaining();
+		if (dst.remaining() < len * 2) {
+			throw new BufferOverflowException();
+		}
 
-		for (int i=0; i < bytes.length; ++i) 
+		final int srcPos = src.position();
+		final int dstPos = dst.position();
+		if (src.hasArray() && dst.hasArray())
+		{
+			hexlify( src.array(), src.arrayOffset() + srcPos, len, dst.array(), dst.arrayOffset() + dstPos );
+		}
+		else
 		{
-			byte b = bytes[i];
-			hexAscii.append( charGlyph_[ (int)(b & 0xf0) >> 4] );
-			hexAscii.append( charGlyph_[ (int)(b & 0x0f)] );
-		}      
-		return hexAscii.toString();
+			for (int i = srcPos, j = dstPos, end = srcPos + len; i < end; ++i)
+			{
+				int p = (src.get(i) & 0xff) << 1;
+				dst.put( j++, bytePairs_[p] );
+				dst.put( j++, bytePairs_[p+1] );
+			}
+		}
+		src.position( srcPos + len );
+		dst.position( dstPos + len * 2 );
+		return len * 2;
+	}
+
+	/**
+		Same as the ByteBuffer variant, but emits chars.
+
+		Returns the number of chars written, always 2 * src.remaining().
+	*/
+	public static int hexlify(ByteBuffer src, CharBuffer dst)
+	{
+		final int len = src.remaining();
+		if (dst.remaining() < len * 2) {
+			throw new BufferOverflowException();
+		}
+
+		final int srcPos = src.position();
+		final int dstPos = dst.position();
+		if (src.hasArray() && dst.hasArray())
+		{
+			hexlify( src.array(), src.arrayOffset() + srcPos, len, dst.array(), dst.arrayOffset() + dstPos );
+		}
+		else
+		{
+			for (int i = srcPos, j = dstPos, end = srcPos + len; i < end; ++i)
+			{
+				int p = (src.get(i) & 0xff) << 1;
+				dst.put( j++, charPairs_[p] );
+				dst.put( j++, charPairs_[p+1] );
+			}
+		}
+		src.position( srcPos + len );
+		dst.position( dstPos + len * 2 );
+		return len * 2;
 	}
 
 	public static byte[] unhexlify(String asciiHex)
@@ -42,13 +175,185 @@ public class Binascii
 			throw new RuntimeException( "Input to unhexlify must have even-length");
 		}
 
-    int len = asciiHex.length();
-    byte[] data = new byte[len / 2];
-    for (int i = 0; i < len; i += 2) 
+		// a loop of its own, without the range checks and the bulk codec
+		// test of the CharSequence overload, which short IDs notice
+		int len = asciiHex.length();
+		byte[] data = new byte[len / 2];
+		for (int i = 0; i < len; i += 2)
+		{
+			int hi = nibble( asciiHex.charAt(i) );
+			int lo = nibble( asciiHex.charAt(i+1) );
+			if ((hi | lo) < 0) {
+				throw invalidChar( asciiHex, hi < 0 ? i : i+1 );
+			}
+			data[i / 2] = (byte) ((hi << 4) | lo);
+		}
+		return data;
+	}
+
+	/**
+		Decodes len hex chars from src, starting at srcOff, into dst at dstOff.
+		Accepts both lower- and upper-case digits; any other character is
+		rejected with its index in src.
+
+		Returns the number of bytes written, always len / 2.
+	*/
+	public static int unhexlify(CharSequence src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		if(len%2 != 0) {
+			throw new RuntimeException( "Input to unhexlify must have even-length");
+		}
+		checkRange( src.length(), srcOff, len );
+		checkRange( dst.length, dstOff, len / 2 );
+
+		int done = 0;
+		if (bulk_ != null && len >= BULK_THRESHOLD && src instanceof CharBuffer && ((CharBuffer) src).hasArray())
 		{
-	    data[i / 2] = (byte) ((Character.digit(asciiHex.charAt(i), 16) << 4) + 
-				Character.digit(asciiHex.charAt(i+1), 16));
-    }
-    return data;
+			CharBuffer chars = (CharBuffer) src;
+			done = bulk_.unhexlify( chars.array(), chars.arrayOffset() + chars.position() + srcOff, len, dst, dstOff );
+		}
+		for (int i = srcOff + done, j = dstOff + done / 2, end = srcOff + len; i < end; i += 2)
+		{
+			int hi = nibble( src.charAt(i) );
+			int lo = nibble( src.charAt(i+1) );
+			if ((hi | lo) < 0) {
+				throw invalidChar( src, hi < 0 ? i : i+1 );
+			}
+			dst[j++] = (byte) ((hi << 4) | lo);
+		}
+		return len / 2;
+	}
+
+	/**
+		Same as the CharSequence variant, but reads hex digits as ASCII bytes,
+		as they arrive from a stream or a protocol buffer.
+
+		Returns the number of bytes written, always len / 2.
+	*/
+	public static int unhexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		if(len%2 != 0) {
+			throw new RuntimeException( "Input to unhexlify must have even-length");
+		}
+		checkRange( src.length, srcOff, len );
+		checkRange( dst.length, dstOff, len / 2 );
+
+		int done = 0;
+		if (bulk_ != null && len >= BULK_THRESHOLD) {
+			done = bulk_.unhexlify( src, srcOff, len, dst, dstOff );
+		}
+		for (int i = srcOff + done, j = dstOff + done / 2, end = srcOff + len; i < end; i += 2)
+		{
+			int hi = nibbleOf_[ src[i] & 0xff ];
+			int lo = nibbleOf_[ src[i+1] & 0xff ];
+			if ((hi | lo) < 0) {
+				int index = hi < 0 ? i : i+1;
+				throw new RuntimeException( "Input to unhexlify has invalid byte 0x" + Integer.toHexString( src[index] & 0xff ) + " at index " + index );
+			}
+			dst[j++] = (byte) ((hi << 4) | lo);
+		}
+		return len / 2;
+	}
+
+	/**
+		Decodes all of src into dst, starting at its position, which is
+		advanced past the decoded bytes. A CharBuffer can be passed as src;
+		it is read from its position to its limit, but not consumed.
+
+		Returns the number of bytes written, always src.length() / 2.
+		Throws BufferOverflowException if dst has less room than that.
+		On invalid input the position of dst is left unchanged.
+	*/
+	public static int unhexlify(CharSequence src, ByteBuffer dst)
+	{
+		final int len = src.length();
+		if(len%2 != 0) {
+			throw new RuntimeException( "Input to unhexlify must have even-length");
+		}
+		if (dst.remaining() < len / 2) {
+			throw new BufferOverflowException();
+		}
+
+		final int dstPos = dst.position();
+		if (dst.hasArray())
+		{
+			unhexlify( src, 0, len, dst.array(), dst.arrayOffset() + dstPos );
+		}
+		else
+		{
+			for (int i = 0, j = dstPos; i < len; i += 2)
+			{
+				int hi = nibble( src.charAt(i) );
+				int lo = nibble( src.charAt(i+1) );
+				if ((hi | lo) < 0) {
+					throw invalidChar( src, hi < 0 ? i : i+1 );
+				}
+				dst.put( j++, (byte) ((hi << 4) | lo) );
+			}
+		}
+		dst.position( dstPos + len / 2 );
+		return len / 2;
+	}
+
+	/** Returns value of a hex digit, or -1 if chr is not one. */
+	private static int nibble(char chr)
+	{
+		return chr < nibbleOf_.length ? nibbleOf_[chr] : -1;
+	}
+
+	private static RuntimeException invalidChar(CharSequence src, int index)
+	{
+		return new RuntimeException( "Input to unhexlify has invalid character '" + src.charAt(index) + "' at index " + index );
+	}
+
+	/** Reverse lookup of charGlyph_, -1 marks characters that are not hex digits. */
+	private static final byte nibbleOf_[] = new byte[256];
+	static
+	{
+		Arrays.fill( nibbleOf_, (byte) -1 );
+		for (int i = 0; i < charGlyph_.length; ++i)
+		{
+			nibbleOf_[ charGlyph_[i] ] = (byte) i;
+			nibbleOf_[ Character.toUpperCase( charGlyph_[i] ) ] = (byte) i;
+		}
+	}
+
+	/**
+		Accelerated codec for whole blocks of input, or null if there is
+		none, in which case the scalar loops above do all the work.
+
+		The javsy-vector module provides one built on the incubating Vector
+		API. It is used when its jar is on the class path and the JVM runs
+		with --add-modules jdk.incubator.vector; setting the system property
+		javsy.hex.bulk to false turns it off.
+	*/
+	private static final HexBulkCodec bulk_ = loadBulkCodec();
+
+	/** Inputs shorter than this are not worth a call into bulk_. */
+	private static final int BULK_THRESHOLD = 64;
+
+	private static HexBulkCodec loadBulkCodec()
+	{
+		if (! Boolean.parseBoolean( System.getProperty( "javsy.hex.bulk", "true" ) )) {
+			return null;
+		}
+		try {
+			return (HexBulkCodec) Class.forName( "com.pushcoin.lib.javsy.VectorHexCodec" ).newInstance();
+		}
+		catch (Exception e) {
+			// not on the class path, or no usable vector shape on this machine
+			return null;
+		}
+		catch (LinkageError e) {
+			// older JVM, or jdk.incubator.vector module not resolved
+			return null;
+		}
+	}
+
+	private static void checkRange(int arrayLen, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > arrayLen - len) {
+			throw new IndexOutOfBoundsException( "Range [" + off + ", " + off + " + " + len + ") out of bounds for length " + arrayLen );
+		}
 	}
 }
@@ -0,0 +1,336 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+* Converts {@link Money} between currencies, at rates from an {@link ExchangeRateProvider}.
+*
+* <P>Rates are cached per pair of currencies, and asked of the provider again once
+* they are older than the time to live given to the constructor. Threads that find
+* the same rate missing or expired at the same time may each ask the provider for it.
+*
+* <P>With each rate, the converter keeps the rate as a scaled <tt>long</tt>, and the
+* power of ten that takes source minor units times the rate to target minor units,
+* so that an amount is converted with one <tt>long</tt> multiplication and one
+* division; amounts or rates too large for that go through {@link BigDecimal}, with
+* the same result. Converted amounts have the number of decimals of the target
+* currency, rounded with the rounding style of the converter.
+*
+* <P>Thread-safe. Currencies without minor units, such as gold, are not supported.
+*/
+public final class CurrencyConverter {
+
+  /**
+  * Converter rounding with the default rounding style.
+  * @param aProvider is required.
+  * @param aTimeToLive how long a rate is used before the provider is asked again.
+  */
+  public CurrencyConverter(ExchangeRateProvider aProvider, long aTimeToLive, TimeUnit aUnit){
+    this(aProvider, aTimeToLive, aUnit, Money.getDefaultRounding());
+  }
+
+  /**
+  * Converter.
+  * @param aProvider is required.
+  * @param aTimeToLive how long a rate is used before the provider is asked again.
+  * @param aRoundingStyle rounds converted amounts to the decimals of their currency,
+  * and is given to them.
+  */
+  public CurrencyConverter(ExchangeRateProvider aProvider, long aTimeToLive, TimeUnit aUnit, RoundingMode aRoundingStyle){
+    if ( aProvider == null ) {
+      throw new IllegalArgumentException("Exchange rate provider cannot be null");
+    }
+    if ( aTimeToLive < 0 ) {
+      throw new IllegalArgumentException("Time to live cannot be negative: " + aTimeToLive);
+    }
+    fProvider = aProvider;
+    fTimeToLiveNanos = aUnit.toNanos(aTimeToLive);
+    fRounding = aRoundingStyle;
+  }
+
+  /**
+  * Convert <tt>aMoney</tt> to <tt>aTo</tt>; an amount already in <tt>aTo</tt> is
+  * returned as is.
+  * @throws IllegalArgumentException if there is no rate for the pair.
+  */
+  public Money convert(Money aMoney, Currency aTo){
+    CurrencyDescriptor to = CurrencyDescriptor.of(aTo);
+    if ( aMoney.getDescriptor() == to ) {
+      return aMoney;
+    }
+    return rateOf(aMoney.getDescriptor(), to).convert(aMoney, fRounding);
+  }
+
+  /**
+  * Convert each of <tt>aMoneys</tt> to <tt>aTo</tt>, in a new array; amounts already
+  * in <tt>aTo</tt> are copied as they are. The rate is looked up once per run of
+  * amounts in the same currency, and checked again for expiry, or for
+  * {@link #invalidate}, as the batch goes on.
+  * @throws IllegalArgumentException if there is no rate for one of the pairs.
+  */
+  public Money[] convert(Money[] aMoneys, Currency aTo){
+    CurrencyDescriptor to = CurrencyDescriptor.of(aTo);
+    Money[] result = new Money[aMoneys.length];
+    AtomicReference<Rate> slot = null;
+    Rate rate = null;
+    for(int i = 0; i < aMoneys.length; ++i){
+      Money money = aMoneys[i];
+      CurrencyDescriptor from = money.getDescriptor();
+      if ( from == to ) {
+        result[i] = money;
+        continue;
+      }
+      if ( rate == null || rate.fFrom != from ) {
+        slot = slotOf(from, to);
+        rate = current(slot, slot.get(), System.nanoTime());
+      }
+      else if ( (i & CHECK_MASK) == 0 ) {
+        rate = current(slot, slot.get(), System.nanoTime());
+      }
+      result[i] = rate.convert(money, fRounding);
+    }
+    return result;
+  }
+
+  /**
+  * Convert the amounts of <tt>aColumn</tt> to <tt>aTo</tt>, in a new column with the
+  * rounding style of this converter. No objects are created per amount. The rate
+  * is checked for expiry, or for {@link #invalidate}, as the column goes on.
+  * @throws IllegalArgumentException if there is no rate for the pair.
+  * @throws ArithmeticException if a converted amount does not fit in a <tt>long</tt>
+  * of minor units.
+  */
+  public MoneyColumn convert(MoneyColumn aColumn, Currency aTo){
+    CurrencyDescriptor from = CurrencyDescriptor.of(aColumn.getCurrency());
+    CurrencyDescriptor to = CurrencyDescriptor.of(aTo);
+    int size = aColumn.size();
+    long[] result = new long[size];
+    if ( from == to ) {
+      for(int i = 0; i < size; ++i){
+        result[i] = aColumn.getMinorUnits(i);
+      }
+    }
+    else {
+      AtomicReference<Rate> slot = slotOf(from, to);
+      Rate rate = null;
+      for(int i = 0; i < size; ++i){
+        if ( (i & CHECK_MASK) == 0 ) {
+          rate = current(slot, slot.get(), System.nanoTime());
+        }
+        result[i] = rate.convert(aColumn.getMinorUnits(i), fRounding);
+      }
+    }
+    return new MoneyColumn(result, size, aTo, fRounding);
+  }
+
+  /**
+  * Return the rate from <tt>aFrom</tt> to <tt>aTo</tt>, from the cache or the provider.
+  * @throws IllegalArgumentException if there is none.
+  */
+  public BigDecimal getRate(Currency aFrom, Currency aTo){
+    AtomicReference<Rate> slot = slotOf(CurrencyDescriptor.of(aFrom), CurrencyDescriptor.of(aTo));
+    return current(slot, slot.get(), System.nanoTime()).fRate;
+  }
+
+  /**
+  * Drop the cached rate from <tt>aFrom</tt> to <tt>aTo</tt>, such as after a correction.
+  * A rate asked of the provider before this call is not cached after it.
+  */
+  public void invalidate(Currency aFrom, Currency aTo){
+    CurrencyDescriptor from = CurrencyDescriptor.of(aFrom);
+    CurrencyDescriptor to = CurrencyDescriptor.of(aTo);
+    AtomicReference<Rate> slot = fSlots.get(keyOf(from, to));
+    if ( slot != null ) {
+      slot.set(new Rate(from, to));
+    }
+  }
+
+  /** Drop all cached rates. */
+  public void invalidateAll(){
+    for(AtomicReference<Rate> slot : fSlots.values()){
+      Rate rate = slot.get();
+      slot.set(new Rate(rate.fFrom, rate.fTo));
+    }
+  }
+
+  // PRIVATE //
+
+  private final ExchangeRateProvider fProvider;
+  private final long fTimeToLiveNanos;
+  private final RoundingMode fRounding;
+
+  /** Amounts of a batch converted between checks of the rate; a power of two. */
+  private static final int CHECK_INTERVAL = 16;
+  private static final int CHECK_MASK = CHECK_INTERVAL - 1;
+
+  /**
+  * Current rate by pair of currencies, keyed on the ids of their descriptors.
+  * Slots are never removed; invalidating puts a new, empty <tt>Rate</tt> in the slot,
+  * so that a thread that asked the provider before that fails to replace what it
+  * read, and does not cache the rate it got.
+  */
+  private final ConcurrentMap<Long, AtomicReference<Rate>> fSlots = new ConcurrentHashMap<Long, AtomicReference<Rate>>();
+
+  /**
+  * Slot used last, checked before <tt>fSlots</tt>: conversions tend to come in runs
+  * of the same pair, and this saves boxing the key and hashing.
+  */
+  private volatile AtomicReference<Rate> fLast;
+
+  private static Long keyOf(CurrencyDescriptor aFrom, CurrencyDescriptor aTo){
+    return Long.valueOf(((long)aFrom.getId() << 32) | aTo.getId());
+  }
+
+  private AtomicReference<Rate> slotOf(CurrencyDescriptor aFrom, CurrencyDescriptor aTo){
+    Long key = keyOf(aFrom, aTo);
+    AtomicReference<Rate> result = fSlots.get(key);
+    if ( result == null ) {
+      AtomicReference<Rate> slot = new AtomicReference<Rate>(new Rate(aFrom, aTo));
+      result = fSlots.putIfAbsent(key, slot);
+      if ( result == null ) {
+        result = slot;
+      }
+    }
+    return result;
+  }
+
+  private Rate rateOf(CurrencyDescriptor aFrom, CurrencyDescriptor aTo){
+    AtomicReference<Rate> slot = fLast;
+    Rate result = slot == null ? null : slot.get();
+    if ( result == null || result.fFrom != aFrom || result.fTo != aTo ) {
+      slot = slotOf(aFrom, aTo);
+      fLast = slot;
+      result = slot.get();
+    }
+    return current(slot, result, System.nanoTime());
+  }
+
+  /**
+  * Return <tt>aRate</tt>, read from <tt>aSlot</tt>, if it is still good at <tt>aNow</tt>;
+  * otherwise ask the provider, and cache the answer unless the slot changed meanwhile.
+  */
+  private Rate current(AtomicReference<Rate> aSlot, Rate aRate, long aNow){
+    if ( aRate.fRate != null && aNow - aRate.fLoadedAt < fTimeToLiveNanos ) {
+      return aRate;
+    }
+    BigDecimal rate = fProvider.getRate(aRate.fFrom.getCurrency(), aRate.fTo.getCurrency());
+    if ( rate == null ) {
+      throw new IllegalArgumentException("No exchange rate from " + aRate.fFrom + " to " + aRate.fTo);
+    }
+    if ( rate.signum() <= 0 ) {
+      throw new IllegalArgumentException("Exchange rate from " + aRate.fFrom + " to " + aRate.fTo + " must be positive: " + rate);
+    }
+    Rate result = new Rate(aRate.fFrom, aRate.fTo, rate, aNow);
+    aSlot.compareAndSet(aRate, result);
+    return result;
+  }
+
+  /** A rate as given by the provider, and as a scaled <tt>long</tt>; immutable. */
+  private static final class Rate {
+    /** No rate yet, or a dropped one. */
+    Rate(CurrencyDescriptor aFrom, CurrencyDescriptor aTo){
+      this(aFrom, aTo, null, 0);
+    }
+
+    Rate(CurrencyDescriptor aFrom, CurrencyDescriptor aTo, BigDecimal aRate, long aLoadedAt){
+      fFrom = aFrom;
+      fTo = aTo;
+      fRate = aRate;
+      fLoadedAt = aLoadedAt;
+      fFromDigits = aFrom.getMinorUnitDigits();
+      fToDigits = aTo.getMinorUnitDigits();
+
+      // source minor units x unscaled rate = target minor units x 10^shift
+      long unscaled = 0;
+      int shift = 0;
+      boolean compact = false;
+      if ( aRate != null && aRate.precision() <= 18 ) {
+        int scale = Math.max(aRate.scale(), 0);
+        try {
+          unscaled = MinorUnits.of(aRate, scale);
+          shift = fFromDigits + scale - fToDigits;
+          compact = Math.abs(shift) < MinorUnits.POWERS_OF_TEN.length;
+        }
+        catch (ArithmeticException ex){
+          // too large as a long, once scaled
+        }
+      }
+      fUnscaled = unscaled;
+      fShift = shift;
+      fCompact = compact;
+    }
+
+    final CurrencyDescriptor fFrom;
+    final CurrencyDescriptor fTo;
+    /** Null if there is no rate. */
+    final BigDecimal fRate;
+    final long fLoadedAt;
+    final int fFromDigits;
+    final int fToDigits;
+    final long fUnscaled;
+    final int fShift;
+    /** True if <tt>fUnscaled</tt> and <tt>fShift</tt> hold the rate. */
+    final boolean fCompact;
+
+    Money convert(Money aMoney, RoundingMode aRounding){
+      CurrencyDescriptor.checkSame(fFrom, aMoney.getDescriptor());
+      BigDecimal amount = aMoney.getAmount();
+      if ( fCompact ) {
+        try {
+          long minorUnits = convertCompact(MinorUnits.of(amount, fFromDigits), aRounding);
+          return Money.trusted(MinorUnits.toAmount(minorUnits, fToDigits), fTo, aRounding);
+        }
+        catch (ArithmeticException ex){
+          // fall through to BigDecimal
+        }
+      }
+      BigDecimal converted = amount.multiply(fRate).setScale(fToDigits, aRounding);
+      return Money.trusted(converted, fTo, aRounding);
+    }
+
+    /** @throws ArithmeticException if the result does not fit in a <tt>long</tt>. */
+    long convert(long aMinorUnits, RoundingMode aRounding){
+      if ( fCompact ) {
+        try {
+          return convertCompact(aMinorUnits, aRounding);
+        }
+        catch (ArithmeticException ex){
+          // fall through to BigDecimal
+        }
+      }
+      BigDecimal converted = MinorUnits.toAmount(aMinorUnits, fFromDigits).multiply(fRate).setScale(fToDigits, aRounding);
+      return MinorUnits.of(converted, fToDigits);
+    }
+
+    private long convertCompact(long aMinorUnits, RoundingMode aRounding){
+      long product = MinorUnits.multiplyExact(aMinorUnits, fUnscaled);
+      return fShift >= 0
+        ? MinorUnits.divide(product, MinorUnits.POWERS_OF_TEN[fShift], aRounding)
+        : MinorUnits.multiplyExact(product, MinorUnits.POWERS_OF_TEN[-fShift]);
+    }
+  }
+}
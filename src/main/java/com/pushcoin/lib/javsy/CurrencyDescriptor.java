@@ -0,0 +1,290 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.math.RoundingMode;
+
+/**
+* What the money types need to know about a {@link Currency}, looked up once.
+*
+* <P>There is exactly one descriptor per currency, registered on first use, so two
+* amounts are in the same currency only if they share the descriptor; comparing
+* references is enough. Each descriptor carries the number of decimals of the
+* currency, the matching power of ten, and a small id: ids are handed out from 0 up,
+* in registration order, so they can index plain arrays.
+*
+* <P>A descriptor also holds the canonical <tt>Money</tt> instances for small amounts,
+* behind {@link Money#of(long, Currency)}: one table per currency, for <tt>0</tt> to
+* {@link #CACHE_HIGH} minor units, allocated on first use and filled in as amounts
+* are asked for. Instances carry the default rounding style; one made under a
+* previous default is replaced on its next use. The table is an
+* {@link AtomicReferenceArray} so that instances are safely published to other
+* threads, <tt>Money</tt> not being immutable in the strict sense of the memory model.
+*/
+final class CurrencyDescriptor {
+
+  /**
+  * Largest amount cached, in minor units. Defaults to 1000 (10.00 in a currency
+  * with cents), about 75 KB per currency once warm, and can be raised with the
+  * system property <tt>javsy.money.cache.high</tt>; 0 turns the cache off.
+  */
+  static final int CACHE_HIGH = Math.max(0, Integer.getInteger("javsy.money.cache.high", 1000).intValue());
+
+  /** The one descriptor of <tt>aCurrency</tt>. */
+  static CurrencyDescriptor of(Currency aCurrency){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    CurrencyDescriptor result = fRegistry.get(aCurrency);
+    if ( result == null ) {
+      result = register(aCurrency);
+    }
+    return result;
+  }
+
+  Currency getCurrency() { return fCurrency; }
+
+  /** Default number of decimals of the currency; -1 for pseudo-currencies such as gold. */
+  int getDigits() { return fDigits; }
+
+  /**
+  * Number of decimals of the minor unit, such as 2 for US Dollars.
+  * Pseudo-currencies without minor units, such as gold, are rejected.
+  */
+  int getMinorUnitDigits(){
+    if ( fDigits < 0 ) {
+      throw new IllegalArgumentException("Currency has no minor units: " + fCurrency);
+    }
+    return fDigits;
+  }
+
+  /** Minor units per major unit, <tt>10^digits</tt>; 1 for currencies without minor units. */
+  long getScaleFactor() { return fScaleFactor; }
+
+  /** Small id, unique to this currency. */
+  int getId() { return fId; }
+
+  /** 
+  * The three letters of the currency code packed into 15 bits, as by {@link #packCode};
+  * -1 if the code is not three capital letters.
+  */
+  int getPackedCode() { return fPackedCode; }
+
+  /**
+  * {@link Currency#getSymbol()}, which looks up locale data on each call; kept until
+  * the locale it uses changes.
+  */
+  String getSymbol(){
+    Symbol symbol = fSymbol;
+    Locale locale = DISPLAY_LOCALE.get();
+    if ( symbol == null || symbol.fLocale != locale ) {
+      symbol = new Symbol(locale, fCurrency.getSymbol(locale));
+      fSymbol = symbol;
+    }
+    return symbol.fText;
+  }
+
+  /**
+  * Pack a three-letter currency code into 15 bits, 5 per letter, 'A' being 1 and 'Z' 26;
+  * -1 if the letters are not all capitals from 'A' to 'Z'.
+  */
+  static int packCode(char aFirst, char aSecond, char aThird){
+    if ( aFirst < 'A' || aFirst > 'Z' || aSecond < 'A' || aSecond > 'Z' || aThird < 'A' || aThird > 'Z' ) {
+      return -1;
+    }
+    return ((aFirst - 'A' + 1) << 10) | ((aSecond - 'A' + 1) << 5) | (aThird - 'A' + 1);
+  }
+
+  /** 
+  * The one descriptor of the currency whose code packs to <tt>aPackedCode</tt>.
+  * @throws IllegalArgumentException if that is not the code of a currency.
+  */
+  static CurrencyDescriptor ofPackedCode(int aPackedCode){
+    int first = aPackedCode >> 10;
+    int rest = aPackedCode & 0x3FF;
+    if ( aPackedCode < 0 || first == 0 || first > 26 ) {
+      throw new IllegalArgumentException("Not a currency code: " + aPackedCode);
+    }
+    CurrencyDescriptor[] table = fByPackedCode.get(first);
+    if ( table == null ) {
+      fByPackedCode.compareAndSet(first, null, new CurrencyDescriptor[1024]);
+      table = fByPackedCode.get(first);
+    }
+    CurrencyDescriptor result = table[rest];
+    if ( result == null ) {
+      char[] code = new char[3];
+      for(int i = 0; i < 3; ++i){
+        int letter = (aPackedCode >> (5 * (2 - i))) & 0x1F;
+        if ( letter == 0 || letter > 26 ) {
+          throw new IllegalArgumentException("Not a currency code: " + aPackedCode);
+        }
+        code[i] = (char)('A' + letter - 1);
+      }
+      // rejects codes of no currency
+      result = of(Currency.getInstance(new String(code)));
+      table[rest] = result;
+    }
+    return result;
+  }
+
+  /**
+  * Canonical <tt>Money</tt> of <tt>aMinorUnits</tt> with the default rounding style,
+  * or null if that amount is not cached.
+  */
+  Money cachedMoney(long aMinorUnits){
+    if ( aMinorUnits < 0 || aMinorUnits > CACHE_HIGH || CACHE_HIGH == 0 ) {
+      return null;
+    }
+    AtomicReferenceArray<Money> table = fSmallAmounts;
+    if ( table == null ) {
+      table = smallAmounts();
+    }
+    int index = (int)aMinorUnits;
+    RoundingMode rounding = Money.getDefaultRounding();
+    Money result = table.get(index);
+    if ( result == null || result.getRoundingStyle() != rounding ) {
+      // concurrent misses may each make one; any of them will do
+      result = Money.trusted(MinorUnits.toAmount(aMinorUnits, getMinorUnitDigits()), this, rounding);
+      table.set(index, result);
+    }
+    return result;
+  }
+
+  /**
+  * Check that <tt>aActual</tt> is the <tt>aExpected</tt> currency.
+  * @throws Money.MismatchedCurrencyException if it is not.
+  */
+  static void checkSame(CurrencyDescriptor aExpected, CurrencyDescriptor aActual){
+    if ( aActual != aExpected ) {
+      throw new Money.MismatchedCurrencyException(
+        aActual.getCurrency() + " doesn't match the expected currency : " + aExpected.getCurrency()
+      );
+    }
+  }
+
+  /** Returns the currency code. */
+  public String toString(){
+    return fCurrency.getCurrencyCode();
+  }
+
+  // PRIVATE //
+
+  private final Currency fCurrency;
+  private final int fDigits;
+  private final long fScaleFactor;
+  private final int fId;
+  private final int fPackedCode;
+
+  /** Table of cached amounts, null until first used. */
+  private volatile AtomicReferenceArray<Money> fSmallAmounts;
+
+  /** Symbol in the default locale of the time, null until first used. */
+  private volatile Symbol fSymbol;
+
+  /** A symbol, and the locale it is for; replaced as a whole, so the two always match. */
+  private static final class Symbol {
+    Symbol(Locale aLocale, String aText){
+      fLocale = aLocale;
+      fText = aText;
+    }
+    final Locale fLocale;
+    final String fText;
+  }
+
+  /** Source of the default locale that {@link Currency#getSymbol()} uses. */
+  interface DisplayLocale {
+    Locale get();
+  }
+
+  /** Java 6: a single default locale. */
+  static final class DefaultLocale implements DisplayLocale {
+    public Locale get() { return Locale.getDefault(); }
+  }
+
+  /**
+  * Java 7 on: the default locale of the <tt>DISPLAY</tt> category. Only loaded by
+  * name, so that a Java 6 runtime never resolves <tt>Locale.Category</tt>.
+  */
+  static final class CategoryLocale implements DisplayLocale {
+    public Locale get() { return Locale.getDefault(Locale.Category.DISPLAY); }
+  }
+
+  /** Picked once; a plain call afterwards, unlike a reflective one on each use. */
+  private static final DisplayLocale DISPLAY_LOCALE = loadDisplayLocale();
+
+  private static DisplayLocale loadDisplayLocale(){
+    try {
+      // CategoryLocale would load on Java 6 too, and only fail on its first call
+      Class.forName("java.util.Locale$Category");
+      return (DisplayLocale)Class.forName("com.pushcoin.lib.javsy.CurrencyDescriptor$CategoryLocale").newInstance();
+    }
+    catch (Exception ex){
+      // Java 6
+      return new DefaultLocale();
+    }
+    catch (LinkageError ex){
+      return new DefaultLocale();
+    }
+  }
+
+  private static final ConcurrentMap<Currency, CurrencyDescriptor> fRegistry =
+    new ConcurrentHashMap<Currency, CurrencyDescriptor>();
+  /** Guarded by the class lock. */
+  private static int fNextId;
+
+  /**
+  * Descriptors by packed code, in 27 tables of 1024, one per first letter (the first
+  * table is unused), allocated on first use. Descriptors have only final and volatile
+  * fields, so they can be stored in the plain inner arrays without synchronization:
+  * a thread either sees a descriptor in full, or sees null and looks it up again.
+  */
+  private static final AtomicReferenceArray<CurrencyDescriptor[]> fByPackedCode =
+    new AtomicReferenceArray<CurrencyDescriptor[]>(27);
+
+  private CurrencyDescriptor(Currency aCurrency, int aId){
+    fCurrency = aCurrency;
+    fDigits = aCurrency.getDefaultFractionDigits();
+    fScaleFactor = fDigits > 0 ? MinorUnits.POWERS_OF_TEN[fDigits] : 1;
+    fId = aId;
+    String code = aCurrency.getCurrencyCode();
+    fPackedCode = code.length() == 3 ? packCode(code.charAt(0), code.charAt(1), code.charAt(2)) : -1;
+  }
+
+  private static synchronized CurrencyDescriptor register(Currency aCurrency){
+    // registration is rare; the lock keeps ids dense
+    CurrencyDescriptor result = fRegistry.get(aCurrency);
+    if ( result == null ) {
+      result = new CurrencyDescriptor(aCurrency, fNextId++);
+      fRegistry.put(aCurrency, result);
+    }
+    return result;
+  }
+
+  private synchronized AtomicReferenceArray<Money> smallAmounts(){
+    if ( fSmallAmounts == null ) {
+      fSmallAmounts = new AtomicReferenceArray<Money>(CACHE_HIGH + 1);
+    }
+    return fSmallAmounts;
+  }
+}
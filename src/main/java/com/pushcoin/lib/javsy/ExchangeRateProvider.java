@@ -0,0 +1,39 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+* Source of exchange rates for a {@link CurrencyConverter}, such as a rates feed
+* or a database table.
+*
+* <P>The converter caches the rates it gets, so implementations may be slow, but
+* must be safe to call from several threads at once.
+*/
+public interface ExchangeRateProvider {
+
+  /**
+  * Return the price of one unit of <tt>aFrom</tt> in <tt>aTo</tt>; for instance
+  * 0.92 from US Dollars to Euros if a dollar buys 0.92 euros. Return null if there
+  * is no rate for the pair.
+  */
+  BigDecimal getRate(Currency aFrom, Currency aTo);
+}
@@ -0,0 +1,515 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.*;
+import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+* An amount of money held as a <tt>long</tt> number of minor units, such as cents.
+*
+* <P>Offers the same operations as {@link Money}, but additions, subtractions,
+* integral multiplications and divisions, and comparisons are done on the
+* <tt>long</tt> and do not allocate a {@link BigDecimal}.
+* Amounts always carry the number of decimals of their currency, so <tt>10</tt>
+* and <tt>10.00</tt> are the same <tt>FastMoney</tt>.
+*
+* <P>Results equal those of <tt>Money</tt> for amounts that have the number of
+* decimals of their currency. <tt>Money</tt> keeps the scale of its amount, so
+* results may differ for amounts with fewer decimals: a <tt>Money</tt> of
+* <tt>10</tt> US Dollars divided by 3 is <tt>3</tt>, where a <tt>FastMoney</tt>
+* of 10 US Dollars divided by 3 is <tt>3.33</tt>.
+*
+* <P>Should an operation overflow a <tt>long</tt>, the result falls back on a
+* {@link BigDecimal} amount, transparently; such results are simply slower.
+* Use {@link #isCompact()} to tell the two apart.
+*
+* <P>Currencies without minor units, such as gold, are not supported.
+*/
+public final class FastMoney implements Comparable<FastMoney>, Serializable {
+
+  /**
+  * Full constructor.
+  *
+  * @param aMinorUnits the amount in minor units of <tt>aCurrency</tt>;
+  * for example, <tt>1050</tt> is 10.50 US Dollars.
+  * @param aCurrency is required.
+  * @param aRoundingStyle is required, must match a rounding style used by
+  * {@link BigDecimal}.
+  */
+  public FastMoney(long aMinorUnits, Currency aCurrency, RoundingMode aRoundingStyle){
+    this(aMinorUnits, null, aCurrency, aRoundingStyle);
+  }
+
+  /**
+  * Constructor taking the amount in minor units and the currency.
+  *
+  * <P>The rounding style takes the default value set by {@link Money#init}.
+  */
+  public FastMoney(long aMinorUnits, Currency aCurrency){
+    this(aMinorUnits, aCurrency, Money.getDefaultRounding());
+  }
+
+  /**
+  * Create from a decimal amount.
+  *
+  * @param aAmount is required, can be positive or negative. The number of
+  * decimals in the amount cannot <em>exceed</em> the number of decimals for
+  * the given {@link Currency}, the same as for {@link Money}.
+  */
+  public static FastMoney valueOf(BigDecimal aAmount, Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aAmount == null ) {
+      throw new IllegalArgumentException("Amount cannot be null");
+    }
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    int digits = MinorUnits.digitsOf(aCurrency);
+    if ( aAmount.scale() > digits ) {
+      throw new IllegalArgumentException(
+        "Number of decimals is " + aAmount.scale() + ", but currency only takes " +
+        digits + " decimals."
+      );
+    }
+    return fromAmount(aAmount.setScale(digits), aCurrency, aRoundingStyle);
+  }
+
+  /** Same amount, currency and rounding style as <tt>aMoney</tt>. */
+  public static FastMoney of(Money aMoney){
+    return valueOf(aMoney.getAmount(), aMoney.getCurrency(), aMoney.getRoundingStyle());
+  }
+
+  /**
+  * Convert to a {@link Money}.
+  * The scale of its amount is the number of decimals of the currency.
+  */
+  public Money toMoney(){
+    if ( fBigAmount == null ) {
+      return Money.of(fMinorUnits, fCurrency, fRounding);
+    }
+    return new Money(fBigAmount, fCurrency, fRounding);
+  }
+
+  /** Return the amount, with a scale equal to the number of decimals of the currency. */
+  public BigDecimal getAmount() {
+    return fBigAmount != null ? fBigAmount : MinorUnits.toAmount(fMinorUnits, fDigits);
+  }
+
+  /**
+  * Return the amount in minor units of the currency.
+  *
+  * @throws ArithmeticException if the amount does not fit in a <tt>long</tt>; see
+  * {@link #isCompact()}.
+  */
+  public long getMinorUnits() {
+    if ( fBigAmount != null ) {
+      throw new ArithmeticException("Amount does not fit in a long: " + fBigAmount);
+    }
+    return fMinorUnits;
+  }
+
+  /** Return <tt>true</tt> only if the amount is held in a <tt>long</tt>. */
+  public boolean isCompact() { return fBigAmount == null; }
+
+  /** Return the currency passed to the constructor, or the default currency. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /** Return the rounding style passed to the constructor, or the default rounding style. */
+  public RoundingMode getRoundingStyle() { return fRounding; }
+
+  /**
+  * Return <tt>true</tt> only if <tt>aThat</tt> <tt>FastMoney</tt> has the same currency
+  * as this <tt>FastMoney</tt>.
+  */
+  public boolean isSameCurrencyAs(FastMoney aThat){
+    return aThat != null && this.fDescriptor == aThat.fDescriptor;
+  }
+
+  /** Return <tt>true</tt> only if the amount is positive. */
+  public boolean isPlus(){
+    return signum() > 0;
+  }
+
+  /** Return <tt>true</tt> only if the amount is negative. */
+  public boolean isMinus(){
+    return signum() < 0;
+  }
+
+  /** Return <tt>true</tt> only if the amount is zero. */
+  public boolean isZero(){
+    return signum() == 0;
+  }
+
+  /**
+  * Add <tt>aThat</tt> <tt>FastMoney</tt> to this <tt>FastMoney</tt>.
+  * Currencies must match.
+  */
+  public FastMoney plus(FastMoney aThat){
+    checkCurrenciesMatch(aThat);
+    if ( this.fBigAmount == null && aThat.fBigAmount == null ) {
+      long sum = fMinorUnits + aThat.fMinorUnits;
+      if ( ! MinorUnits.addOverflows(fMinorUnits, aThat.fMinorUnits, sum) ) {
+        return new FastMoney(sum, null, fCurrency, fRounding);
+      }
+    }
+    return fromAmount(getAmount().add(aThat.getAmount()), fCurrency, fRounding);
+  }
+
+  /**
+  * Subtract <tt>aThat</tt> <tt>FastMoney</tt> from this <tt>FastMoney</tt>.
+  * Currencies must match.
+  */
+  public FastMoney minus(FastMoney aThat){
+    checkCurrenciesMatch(aThat);
+    if ( this.fBigAmount == null && aThat.fBigAmount == null ) {
+      long difference = fMinorUnits - aThat.fMinorUnits;
+      if ( ! MinorUnits.subtractOverflows(fMinorUnits, aThat.fMinorUnits, difference) ) {
+        return new FastMoney(difference, null, fCurrency, fRounding);
+      }
+    }
+    return fromAmount(getAmount().subtract(aThat.getAmount()), fCurrency, fRounding);
+  }
+
+  /**
+  * Sum a collection of <tt>FastMoney</tt> objects, without creating intermediate
+  * results. Currencies must match.
+  *
+  * <P>As with {@link Money#sum}, the result has the default rounding style.
+  *
+  * @param aMoneys collection of <tt>FastMoney</tt> objects, all of the same currency.
+  * If the collection is empty, then a zero value is returned.
+  * @param aCurrencyIfEmpty is used only when <tt>aMoneys</tt> is empty; that way, this
+  * method can return a zero amount in the desired currency.
+  */
+  public static FastMoney sum(Collection<FastMoney> aMoneys, Currency aCurrencyIfEmpty){
+    Currency currency = aCurrencyIfEmpty;
+    CurrencyDescriptor descriptor = CurrencyDescriptor.of(currency);
+    UnscaledSum sum = new UnscaledSum();
+    for(FastMoney money : aMoneys){
+      CurrencyDescriptor.checkSame(descriptor, money.fDescriptor);
+      if ( money.fBigAmount == null ) {
+        sum.add(money.fMinorUnits);
+      }
+      else {
+        sum.add(money.fBigAmount.unscaledValue());
+      }
+    }
+    RoundingMode rounding = Money.getDefaultRounding();
+    if ( sum.isCompact() ) {
+      return new FastMoney(sum.longValue(), currency, rounding);
+    }
+    return fromAmount(sum.toAmount(descriptor.getMinorUnitDigits()), currency, rounding);
+  }
+
+  /**
+  * Equals (insensitive to scale).
+  *
+  * <P>Return <tt>true</tt> only if the amounts are equal.
+  * Currencies must match.
+  */
+  public boolean eq(FastMoney aThat) {
+    checkCurrenciesMatch(aThat);
+    return compareAmount(aThat) == 0;
+  }
+
+  /**
+  * Greater than.
+  *
+  * <P>Return <tt>true</tt> only if  'this' amount is greater than
+  * 'that' amount. Currencies must match.
+  */
+  public boolean gt(FastMoney aThat) {
+    checkCurrenciesMatch(aThat);
+    return compareAmount(aThat) > 0;
+  }
+
+  /**
+  * Greater than or equal to.
+  *
+  * <P>Return <tt>true</tt> only if 'this' amount is
+  * greater than or equal to 'that' amount. Currencies must match.
+  */
+  public boolean gteq(FastMoney aThat) {
+    checkCurrenciesMatch(aThat);
+    return compareAmount(aThat) >= 0;
+  }
+
+  /**
+  * Less than.
+  *
+  * <P>Return <tt>true</tt> only if 'this' amount is less than
+  * 'that' amount. Currencies must match.
+  */
+  public boolean lt(FastMoney aThat) {
+    checkCurrenciesMatch(aThat);
+    return compareAmount(aThat) < 0;
+  }
+
+  /**
+  * Less than or equal to.
+  *
+  * <P>Return <tt>true</tt> only if 'this' amount is less than or equal to
+  * 'that' amount. Currencies must match.
+  */
+  public boolean lteq(FastMoney aThat) {
+    checkCurrenciesMatch(aThat);
+    return compareAmount(aThat) <= 0;
+  }
+
+  /** Multiply this <tt>FastMoney</tt> by an integral factor. */
+  public FastMoney times(int aFactor){
+    if ( fBigAmount == null ) {
+      try {
+        return new FastMoney(MinorUnits.multiplyExact(fMinorUnits, aFactor), null, fCurrency, fRounding);
+      }
+      catch (ArithmeticException ex){
+        // fall through to BigDecimal
+      }
+    }
+    return fromAmount(getAmount().multiply(new BigDecimal(aFactor)), fCurrency, fRounding);
+  }
+
+  /**
+  * Multiply this <tt>FastMoney</tt> by an non-integral factor (having a decimal point),
+  * rounding the same way as {@link Money#times(double)}.
+  */
+  public FastMoney times(double aFactor){
+    int scale = MinorUnits.decimalScaleOf(aFactor);
+    if ( fBigAmount == null && scale >= 0 ) {
+      try {
+        long product = MinorUnits.multiplyExact(fMinorUnits, MinorUnits.unscaledOf(aFactor, scale));
+        long result = MinorUnits.divide(product, MinorUnits.POWERS_OF_TEN[scale], fRounding);
+        return new FastMoney(result, null, fCurrency, fRounding);
+      }
+      catch (ArithmeticException ex){
+        // fall through to BigDecimal
+      }
+    }
+    BigDecimal newAmount = getAmount().multiply(asBigDecimal(aFactor));
+    newAmount = newAmount.setScale(fDigits, fRounding);
+    return fromAmount(newAmount, fCurrency, fRounding);
+  }
+
+  /**
+  * Divide this <tt>FastMoney</tt> by an integral divisor, rounding the same way as
+  * {@link Money#div(int)}.
+  */
+  public FastMoney div(int aDivisor){
+    if ( fBigAmount == null && aDivisor != 0 && ! (aDivisor == -1 && fMinorUnits == Long.MIN_VALUE) ) {
+      return new FastMoney(MinorUnits.divide(fMinorUnits, aDivisor, fRounding), null, fCurrency, fRounding);
+    }
+    return fromAmount(getAmount().divide(new BigDecimal(aDivisor), fRounding), fCurrency, fRounding);
+  }
+
+  /**
+  * Divide this <tt>FastMoney</tt> by an non-integral divisor, rounding the same way as
+  * {@link Money#div(double)}.
+  */
+  public FastMoney div(double aDivisor){
+    int scale = MinorUnits.decimalScaleOf(aDivisor);
+    if ( fBigAmount == null && scale >= 0 ) {
+      try {
+        // dividing by n x 10^-scale is multiplying by 10^scale, then dividing by n
+        long dividend = MinorUnits.multiplyExact(fMinorUnits, MinorUnits.POWERS_OF_TEN[scale]);
+        long result = MinorUnits.divide(dividend, MinorUnits.unscaledOf(aDivisor, scale), fRounding);
+        return new FastMoney(result, null, fCurrency, fRounding);
+      }
+      catch (ArithmeticException ex){
+        // fall through to BigDecimal
+      }
+    }
+    BigDecimal newAmount = getAmount().divide(asBigDecimal(aDivisor), fRounding);
+    return fromAmount(newAmount, fCurrency, fRounding);
+  }
+
+  /** Return the absolute value of the amount. */
+  public FastMoney abs(){
+    return isMinus() ? negate() : this;
+  }
+
+  /** Return the amount x (-1). */
+  public FastMoney negate(){
+    return times(-1);
+  }
+
+  /**
+  * Returns
+  * {@link #getAmount()}.getPlainString() + space + {@link #getCurrency()}.getSymbol(),
+  * the same as {@link Money#toString()}.
+  */
+  public String toString(){
+    if ( fBigAmount != null ) {
+      return MoneyFormat.toString(fBigAmount, fDescriptor.getSymbol());
+    }
+    return MoneyFormat.toString(fMinorUnits, fDigits, fDescriptor.getSymbol());
+  }
+
+  /**
+  * Return <tt>true</tt> only if the amount, currency and rounding style are the same.
+  * Since amounts always carry the number of decimals of their currency,
+  * this agrees with {@link #eq(FastMoney)} for the same currency.
+  */
+  public boolean equals(Object aThat){
+    if (this == aThat) return true;
+    if (! (aThat instanceof FastMoney) ) return false;
+    FastMoney that = (FastMoney)aThat;
+    boolean result = (this.fMinorUnits == that.fMinorUnits);
+    result = result && (this.fBigAmount == null ? that.fBigAmount == null : this.fBigAmount.equals(that.fBigAmount));
+    result = result && (this.fDescriptor == that.fDescriptor);
+    result = result && (this.fRounding == that.fRounding);
+    return result;
+  }
+
+  public int hashCode(){
+    if ( fHashCode == 0 ) {
+      fHashCode = HASH_SEED;
+      fHashCode = HASH_FACTOR * fHashCode + (fBigAmount != null ? fBigAmount.hashCode() : (int)(fMinorUnits ^ (fMinorUnits >>> 32)));
+      fHashCode = HASH_FACTOR * fHashCode + fCurrency.hashCode();
+      fHashCode = HASH_FACTOR * fHashCode + fRounding.hashCode();
+    }
+    return fHashCode;
+  }
+
+  /** Orders by amount, then currency code, then rounding style, as {@link Money} does. */
+  public int compareTo(FastMoney aThat) {
+    final int EQUAL = 0;
+
+    if ( this == aThat ) return EQUAL;
+
+    int comparison = compareAmount(aThat);
+    if ( comparison != EQUAL ) return comparison;
+
+    comparison = this.fCurrency.getCurrencyCode().compareTo(
+      aThat.fCurrency.getCurrencyCode()
+    );
+    if ( comparison != EQUAL ) return comparison;
+
+    comparison = this.fRounding.compareTo(aThat.fRounding);
+    if ( comparison != EQUAL ) return comparison;
+
+    return EQUAL;
+  }
+
+  // PRIVATE //
+
+  /**
+  * The amount in minor units; zero when the amount is held by <tt>fBigAmount</tt>.
+  * @serial
+  */
+  private final long fMinorUnits;
+
+  /**
+  * The amount, only when it does not fit in <tt>fMinorUnits</tt>; otherwise null.
+  * Its scale is the number of decimals of the currency.
+  * @serial
+  */
+  private final BigDecimal fBigAmount;
+
+  /**
+  * The currency of the money, such as US Dollars or Euros.
+  * Never null.
+  * @serial
+  */
+  private final Currency fCurrency;
+
+  /**
+  * The rounding style to be used.
+  * See {@link BigDecimal}.
+  * @serial
+  */
+  private final RoundingMode fRounding;
+
+  /** Descriptor of the currency, and its number of decimals, looked up once. */
+  private transient CurrencyDescriptor fDescriptor;
+  private transient int fDigits;
+
+  private transient int fHashCode;
+  private static final int HASH_SEED = 23;
+  private static final int HASH_FACTOR = 37;
+
+  private static final long serialVersionUID = 4735208371142651960L;
+
+  private FastMoney(long aMinorUnits, BigDecimal aBigAmount, Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    fMinorUnits = aMinorUnits;
+    fBigAmount = aBigAmount;
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+  }
+
+  /**
+  * Result of an operation done on {@link BigDecimal}, which has the number of decimals
+  * of the currency; back in a <tt>long</tt> whenever it fits.
+  */
+  private static FastMoney fromAmount(BigDecimal aAmount, Currency aCurrency, RoundingMode aRoundingStyle){
+    BigInteger unscaled = aAmount.unscaledValue();
+    if ( MinorUnits.fitsInLong(unscaled) ) {
+      return new FastMoney(unscaled.longValue(), null, aCurrency, aRoundingStyle);
+    }
+    return new FastMoney(0, aAmount, aCurrency, aRoundingStyle);
+  }
+
+  /**
+  * Always treat de-serialization as a full-blown constructor, by
+  * validating the final state of the de-serialized object.
+  */
+  private void readObject(
+    ObjectInputStream aInputStream
+  ) throws ClassNotFoundException, IOException {
+    aInputStream.defaultReadObject();
+    if( fCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    fDescriptor = CurrencyDescriptor.of(fCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+    if ( fBigAmount != null ) {
+      if ( fBigAmount.scale() != fDigits || MinorUnits.fitsInLong(fBigAmount.unscaledValue()) || fMinorUnits != 0 ) {
+        throw new IllegalArgumentException("Amount is not in canonical form: " + fBigAmount);
+      }
+    }
+  }
+
+  private int signum(){
+    return fBigAmount != null ? fBigAmount.signum() : MinorUnits.compare(fMinorUnits, 0);
+  }
+
+  private void checkCurrenciesMatch(FastMoney aThat){
+    CurrencyDescriptor.checkSame(fDescriptor, aThat.fDescriptor);
+  }
+
+  private int compareAmount(FastMoney aThat){
+    if ( this.fBigAmount == null && aThat.fBigAmount == null ) {
+      return MinorUnits.compare(this.fMinorUnits, aThat.fMinorUnits);
+    }
+    return this.getAmount().compareTo(aThat.getAmount());
+  }
+
+  private BigDecimal asBigDecimal(double aDouble){
+    return MinorUnits.decimalOf(aDouble);
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+/**
+	Hook for an accelerated hex codec that Binascii picks up at runtime
+	when one is on the class path (see the javsy-vector module).
+
+	Implementations handle whole blocks only, starting at the given offsets,
+	and return how much input they consumed; Binascii finishes the rest
+	with its scalar code. Ranges are validated by the caller. A decoder
+	stops at the first block that contains anything but hex digits, so the
+	scalar code can report the offending index.
+*/
+interface HexBulkCodec
+{
+	/** Returns the number of bytes of src encoded. */
+	int hexlify(byte[] src, int srcOff, int len, char[] dst, int dstOff);
+
+	/** Returns the number of bytes of src encoded. */
+	int hexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff);
+
+	/** Returns the number of digits of src decoded, always even. */
+	int unhexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff);
+
+	/** Returns the number of digits of src decoded, always even. */
+	int unhexlify(char[] src, int srcOff, int len, byte[] dst, int dstOff);
+}
@@ -0,0 +1,204 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+	Reads hex digits from an underlying stream, either ASCII bytes or chars
+	from a Reader, and returns the bytes they encode, the same way
+	Binascii.unhexlify does.
+
+	Input is read in chunks into a fixed scratch buffer and decoded straight
+	into the caller's array, so memory use does not depend on the amount
+	of data piped through.
+*/
+public class HexDecodingInputStream extends InputStream
+{
+	/** Decodes ASCII hex digits read from in. */
+	public HexDecodingInputStream(InputStream in)
+	{
+		this( in, HexEncodingOutputStream.DEFAULT_CHUNK_SIZE );
+	}
+
+	/**
+		Decodes ASCII hex digits read from in, asking it
+		for at most 2 * chunkSize bytes at a time.
+	*/
+	public HexDecodingInputStream(InputStream in, int chunkSize)
+	{
+		if (in == null) {
+			throw new NullPointerException( "Input stream cannot be null" );
+		}
+		HexEncodingOutputStream.checkChunkSize( chunkSize );
+		byteSource_ = in;
+		charSource_ = null;
+		ascii_ = new byte[chunkSize * 2];
+		chars_ = null;
+		charView_ = null;
+	}
+
+	/** Decodes hex digits read from in. */
+	public HexDecodingInputStream(Reader in)
+	{
+		this( in, HexEncodingOutputStream.DEFAULT_CHUNK_SIZE );
+	}
+
+	/**
+		Decodes hex digits read from in, asking it
+		for at most 2 * chunkSize chars at a time.
+	*/
+	public HexDecodingInputStream(Reader in, int chunkSize)
+	{
+		if (in == null) {
+			throw new NullPointerException( "Reader cannot be null" );
+		}
+		HexEncodingOutputStream.checkChunkSize( chunkSize );
+		byteSource_ = null;
+		charSource_ = in;
+		ascii_ = null;
+		chars_ = new char[chunkSize * 2];
+		charView_ = CharBuffer.wrap( chars_ );
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int n = read( one_, 0, 1 );
+		return n < 0 ? -1 : (one_[0] & 0xff);
+	}
+
+	/**
+		Blocks until at least one byte can be decoded. Throws EOFException
+		if the stream ends in the middle of a byte, and IOException if it
+		contains anything other than hex digits.
+	*/
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+
+		// need a full pair of digits to produce anything
+		if (count_ < 2 && start_ > 0)
+		{
+			// move a leftover digit to the front, to make room for a refill
+			if (count_ > 0)
+			{
+				if (ascii_ != null) {
+					ascii_[0] = ascii_[start_];
+				} else {
+					chars_[0] = chars_[start_];
+				}
+			}
+			start_ = 0;
+		}
+		while (count_ < 2)
+		{
+			int n = (ascii_ != null ?
+				byteSource_.read( ascii_, count_, ascii_.length - count_ ) :
+				charSource_.read( chars_, count_, chars_.length - count_ ));
+			if (n < 0)
+			{
+				if (count_ == 0) {
+					return -1;
+				}
+				throw new EOFException( "Hex input ends in the middle of a byte, after " + (consumed_ + count_) + " digits" );
+			}
+			count_ += n;
+		}
+
+		final int pairs = Math.min( count_ / 2, len );
+		try
+		{
+			if (ascii_ != null) {
+				Binascii.unhexlify( ascii_, start_, pairs * 2, b, off );
+			} else {
+				Binascii.unhexlify( charView_, start_, pairs * 2, b, off );
+			}
+		}
+		catch (RuntimeException e) {
+			throw new IOException( "Invalid hex input after " + consumed_ + " digits: " + e.getMessage(), e );
+		}
+
+		// whatever was not decoded yet stays where it is, until the next refill
+		start_ += pairs * 2;
+		count_ -= pairs * 2;
+		consumed_ += pairs * 2;
+		return pairs;
+	}
+
+	/** Number of bytes that can be decoded from what is already buffered. */
+	@Override
+	public int available() throws IOException
+	{
+		ensureOpen();
+		return count_ / 2;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (closed_) {
+			return;
+		}
+		closed_ = true;
+		if (byteSource_ != null) {
+			byteSource_.close();
+		} else {
+			charSource_.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException
+	{
+		if (closed_) {
+			throw new IOException( "Stream closed" );
+		}
+	}
+
+	private final InputStream byteSource_;
+	private final Reader charSource_;
+
+	/** Scratch for hex input; only the one matching the source is allocated. */
+	private final byte[] ascii_;
+	private final char[] chars_;
+
+	/** CharSequence view of chars_ for Binascii, wrapped once. */
+	private final CharBuffer charView_;
+
+	/** Hex digits waiting in the scratch buffer, from start_ on. */
+	private int start_;
+	private int count_;
+
+	/** Number of hex digits decoded so far, for error messages. */
+	private long consumed_;
+
+	private final byte[] one_ = new byte[1];
+	private boolean closed_;
+}
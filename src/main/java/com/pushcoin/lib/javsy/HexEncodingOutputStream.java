@@ -0,0 +1,186 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+	Hex-encodes bytes written to it, the same way Binascii.hexlify does,
+	and passes the result on to an underlying stream, either as ASCII bytes
+	or as chars to a Writer.
+
+	Input is encoded in chunks into a fixed scratch buffer, so memory use
+	does not depend on the amount of data piped through.
+*/
+public class HexEncodingOutputStream extends OutputStream
+{
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	/** Encodes to ASCII bytes written to out. */
+	public HexEncodingOutputStream(OutputStream out)
+	{
+		this( out, DEFAULT_CHUNK_SIZE );
+	}
+
+	/**
+		Encodes to ASCII bytes written to out, passing it
+		at most 2 * chunkSize bytes at a time.
+	*/
+	public HexEncodingOutputStream(OutputStream out, int chunkSize)
+	{
+		if (out == null) {
+			throw new NullPointerException( "Output stream cannot be null" );
+		}
+		checkChunkSize( chunkSize );
+		byteSink_ = out;
+		charSink_ = null;
+		ascii_ = new byte[chunkSize * 2];
+		chars_ = null;
+	}
+
+	/** Encodes to chars written to out. */
+	public HexEncodingOutputStream(Writer out)
+	{
+		this( out, DEFAULT_CHUNK_SIZE );
+	}
+
+	/**
+		Encodes to chars written to out, passing it
+		at most 2 * chunkSize chars at a time.
+	*/
+	public HexEncodingOutputStream(Writer out, int chunkSize)
+	{
+		if (out == null) {
+			throw new NullPointerException( "Writer cannot be null" );
+		}
+		checkChunkSize( chunkSize );
+		byteSink_ = null;
+		charSink_ = out;
+		ascii_ = null;
+		chars_ = new char[chunkSize * 2];
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		one_[0] = (byte) b;
+		write( one_, 0, 1 );
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || off > b.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		final int capacity = (ascii_ != null ? ascii_.length : chars_.length);
+		while (len > 0)
+		{
+			int n = Math.min( len, (capacity - count_) / 2 );
+			if (ascii_ != null) {
+				count_ += Binascii.hexlify( b, off, n, ascii_, count_ );
+			} else {
+				count_ += Binascii.hexlify( b, off, n, chars_, count_ );
+			}
+			off += n;
+			len -= n;
+
+			if (count_ == capacity) {
+				drain();
+			}
+		}
+	}
+
+	/** Writes out any buffered hex digits and flushes the underlying stream. */
+	@Override
+	public void flush() throws IOException
+	{
+		ensureOpen();
+		drain();
+		if (byteSink_ != null) {
+			byteSink_.flush();
+		} else {
+			charSink_.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (closed_) {
+			return;
+		}
+		try {
+			flush();
+		}
+		finally
+		{
+			closed_ = true;
+			if (byteSink_ != null) {
+				byteSink_.close();
+			} else {
+				charSink_.close();
+			}
+		}
+	}
+
+	private void drain() throws IOException
+	{
+		if (count_ > 0)
+		{
+			if (byteSink_ != null) {
+				byteSink_.write( ascii_, 0, count_ );
+			} else {
+				charSink_.write( chars_, 0, count_ );
+			}
+			count_ = 0;
+		}
+	}
+
+	private void ensureOpen() throws IOException
+	{
+		if (closed_) {
+			throw new IOException( "Stream closed" );
+		}
+	}
+
+	static void checkChunkSize(int chunkSize)
+	{
+		if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException( "Invalid chunk size: " + chunkSize );
+		}
+	}
+
+	private final OutputStream byteSink_;
+	private final Writer charSink_;
+
+	/** Scratch for encoded output; only the one matching the sink is allocated. */
+	private final byte[] ascii_;
+	private final char[] chars_;
+
+	/** Number of hex digits waiting in the scratch buffer. */
+	private int count_;
+
+	private final byte[] one_ = new byte[1];
+	private boolean closed_;
+}
@@ -0,0 +1,239 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+* Arithmetic on amounts held as a <tt>long</tt> number of minor units (cents), 
+* shared by the long-based money types.
+* 
+* <P>The overflow checks mirror <tt>Math.addExact</tt> and friends, which are not 
+* available on Java 6: they throw {@link ArithmeticException}, which callers able to 
+* fall back on {@link BigDecimal} catch.
+*/
+final class MinorUnits {
+  private MinorUnits() {}
+
+  /** 10^0 ... 10^18, all powers of ten that fit in a long. */
+  static final long[] POWERS_OF_TEN = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+    1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+    100000000000000L, 1000000000000000L, 10000000000000000L,
+    100000000000000000L, 1000000000000000000L
+  };
+
+  /** Most decimals {@link #decimalScaleOf} looks for. */
+  static final int MAX_DOUBLE_SCALE = 9;
+
+  /** 
+  * Largest unscaled value {@link #decimalScaleOf} accepts, 10^15; decimals of 15 digits
+  * or less survive the trip to a double and back.
+  */
+  private static final double MAX_DOUBLE_UNSCALED = 1e15;
+
+  /**
+  * Number of decimals of the minor unit of <tt>aCurrency</tt>, such as 2 for US Dollars.
+  * 
+  * <P>Pseudo-currencies without minor units, such as gold, are rejected.
+  */
+  static int digitsOf(Currency aCurrency){
+    return CurrencyDescriptor.of(aCurrency).getMinorUnitDigits();
+  }
+
+  static long addExact(long a, long b){
+    long r = a + b;
+    if ( addOverflows(a, b, r) ) {
+      throw new ArithmeticException("long overflow");
+    }
+    return r;
+  }
+
+  static long subtractExact(long a, long b){
+    long r = a - b;
+    if ( subtractOverflows(a, b, r) ) {
+      throw new ArithmeticException("long overflow");
+    }
+    return r;
+  }
+
+  /** True if <tt>r</tt>, the result of <tt>a + b</tt>, overflowed. */
+  static boolean addOverflows(long a, long b, long r){
+    // overflow iff both operands have the sign opposite to the result
+    return ((a ^ r) & (b ^ r)) < 0;
+  }
+
+  /** True if <tt>r</tt>, the result of <tt>a - b</tt>, overflowed. */
+  static boolean subtractOverflows(long a, long b, long r){
+    // overflow iff the operands have different signs, and the result
+    // has the sign opposite to a
+    return ((a ^ b) & (a ^ r)) < 0;
+  }
+
+  static long multiplyExact(long a, long b){
+    long r = a * b;
+    long ax = Math.abs(a);
+    long ay = Math.abs(b);
+    if ( ((ax | ay) >>> 31 != 0) ) {
+      // some bits greater than 2^31 that might cause overflow
+      if ( ((b != 0) && (r / b != a)) || (a == Long.MIN_VALUE && b == -1) ) {
+        throw new ArithmeticException("long overflow");
+      }
+    }
+    return r;
+  }
+
+  static long negateExact(long a){
+    if ( a == Long.MIN_VALUE ) {
+      throw new ArithmeticException("long overflow");
+    }
+    return -a;
+  }
+
+  /**
+  * Divide with the given rounding, the way {@link BigDecimal#divide(BigDecimal, RoundingMode)} 
+  * does when the divisor has a scale of 0.
+  */
+  static long divide(long aDividend, long aDivisor, RoundingMode aRounding){
+    if ( aDivisor == 0 ) {
+      throw new ArithmeticException("Division by zero");
+    }
+    if ( aDividend == Long.MIN_VALUE && aDivisor == -1 ) {
+      throw new ArithmeticException("long overflow");
+    }
+    long quotient = aDividend / aDivisor;
+    long remainder = aDividend % aDivisor;
+    if ( remainder == 0 ) {
+      return quotient;
+    }
+
+    // sign of the exact result, and where the remainder lies relative to the midpoint
+    int signum = ((aDividend ^ aDivisor) < 0) ? -1 : 1;
+    long absRemainder = Math.abs(remainder);
+    long absDivisor = Math.abs(aDivisor);
+    // compare 2*rem against divisor without overflowing
+    int vsHalf = compare(absRemainder, absDivisor - absRemainder);
+
+    boolean awayFromZero;
+    switch ( aRounding ) {
+      case UP:        awayFromZero = true; break;
+      case DOWN:      awayFromZero = false; break;
+      case CEILING:   awayFromZero = signum > 0; break;
+      case FLOOR:     awayFromZero = signum < 0; break;
+      case HALF_UP:   awayFromZero = vsHalf >= 0; break;
+      case HALF_DOWN: awayFromZero = vsHalf > 0; break;
+      case HALF_EVEN: awayFromZero = vsHalf > 0 || (vsHalf == 0 && (quotient & 1) != 0); break;
+      case UNNECESSARY:
+        throw new ArithmeticException("Rounding necessary");
+      default:
+        throw new IllegalArgumentException("Unsupported rounding: " + aRounding);
+    }
+    return awayFromZero ? quotient + signum : quotient;
+  }
+
+  /**
+  * Convert an amount to minor units of a currency with aDigits decimals.
+  * The scale of aAmount must not exceed aDigits.
+  *
+  * @throws ArithmeticException if the result does not fit in a long.
+  */
+  static long of(BigDecimal aAmount, int aDigits){
+    int shift = aDigits - aAmount.scale();
+    if ( shift < 0 ) {
+      throw new IllegalArgumentException(
+        "Number of decimals is " + aAmount.scale() + ", but currency only takes " + aDigits + " decimals."
+      );
+    }
+    if ( aAmount.precision() > 18 || shift >= POWERS_OF_TEN.length ) {
+      return longValueExact( aAmount.unscaledValue().multiply(BigInteger.TEN.pow(shift)) );
+    }
+    // unscaledValue() would create a BigInteger; the unscaled value at scale 0 is 
+    // returned by longValue() straight from the compact form
+    long unscaled = aAmount.scaleByPowerOfTen(aAmount.scale()).longValue();
+    return multiplyExact( unscaled, POWERS_OF_TEN[shift] );
+  }
+
+  /** The amount of aMinorUnits, with a scale of aDigits. */
+  static BigDecimal toAmount(long aMinorUnits, int aDigits){
+    return BigDecimal.valueOf(aMinorUnits, aDigits);
+  }
+
+  /**
+  * Smallest scale, at most {@link #MAX_DOUBLE_SCALE}, at which <tt>aValue</tt> is a decimal
+  * of at most 15 digits; -1 if there is none, or <tt>aValue</tt> is not finite.
+  *
+  * <P>That decimal is the one {@link Double#toString(double)} prints, and so the value
+  * {@link BigDecimal#valueOf(double)} takes, found without formatting and parsing a
+  * <tt>String</tt>. Its unscaled value is {@link #unscaledOf}.
+  */
+  static int decimalScaleOf(double aValue){
+    if ( Double.isNaN(aValue) || Double.isInfinite(aValue) ) {
+      return -1;
+    }
+    for(int scale = 0; scale <= MAX_DOUBLE_SCALE; ++scale){
+      double scaled = aValue * POWERS_OF_TEN[scale];
+      if ( Math.abs(scaled) > MAX_DOUBLE_UNSCALED ) {
+        return -1;
+      }
+      // both operands are exact doubles and the division is correctly rounded, so
+      // this is true only if the decimal rounds to aValue; with 15 digits or less, 
+      // it is the only such decimal at this scale
+      long unscaled = Math.round(scaled);
+      if ( unscaled / (double)POWERS_OF_TEN[scale] == aValue ) {
+        return scale;
+      }
+    }
+    return -1;
+  }
+
+  /** Unscaled value of <tt>aValue</tt> at a scale returned by {@link #decimalScaleOf}. */
+  static long unscaledOf(double aValue, int aScale){
+    return Math.round(aValue * POWERS_OF_TEN[aScale]);
+  }
+
+  /** 
+  * The value {@link BigDecimal#valueOf(double)} gives, though not always with the
+  * same scale. 
+  */
+  static BigDecimal decimalOf(double aValue){
+    int scale = decimalScaleOf(aValue);
+    if ( scale < 0 ) {
+      return BigDecimal.valueOf(aValue);
+    }
+    return BigDecimal.valueOf(unscaledOf(aValue, scale), scale);
+  }
+
+  static boolean fitsInLong(BigInteger aValue){
+    return aValue.bitLength() <= 63;
+  }
+
+  static long longValueExact(BigInteger aValue){
+    if ( ! fitsInLong(aValue) ) {
+      throw new ArithmeticException("long overflow");
+    }
+    return aValue.longValue();
+  }
+
+  static int compare(long a, long b){
+    return (a < b) ? -1 : ((a == b) ? 0 : 1);
+  }
+}
@@ -12,8 +12,10 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import static java.math.BigDecimal.ZERO;
 import java.math.RoundingMode;
+import java.util.concurrent.ExecutorService;
 
 public final class Money implements Comparable<Money>, Serializable {
   
@@ -89,6 +91,46 @@ public final class Money implements Comparable<Money>, Serializable {
     this(aAmount, aCurrency, DEFAULT_ROUNDING);
   }
   
+  /**
+  * Factory method taking the amount in minor units of the currency, such as cents.
+  * 
+  * <P>The amount of the returned <tt>Money</tt> has the number of decimals of the 
+  * currency; for example, <tt>of(1050, usd)</tt> is 10.50 US Dollars. The rounding 
+  * style takes the default value.
+  * 
+  * <P>Like <tt>Integer.valueOf</tt>, this method returns shared instances for 
+  * small amounts, from 0 up to 1000 minor units (10.00 in a currency with cents), 
+  * which saves creating and validating a new <tt>Money</tt> on hot paths. 
+  * The bound can be raised with the system property 
+  * <tt>javsy.money.cache.high</tt>. Currencies without minor units, such as gold, 
+  * are not supported.
+  * 
+  * @param aCurrency is required.
+  */
+  public static Money of(long aMinorUnits, Currency aCurrency){
+    CurrencyDescriptor descriptor = CurrencyDescriptor.of(aCurrency);
+    Money result = descriptor.cachedMoney(aMinorUnits);
+    if ( result == null ) {
+      BigDecimal amount = MinorUnits.toAmount(aMinorUnits, descriptor.getMinorUnitDigits());
+      result = new Money(amount, descriptor, DEFAULT_ROUNDING);
+    }
+    return result;
+  }
+  
+  /**
+  * Factory method taking the amount in minor units of the currency, and the 
+  * rounding style. See {@link #of(long, Currency)}; shared instances are returned 
+  * only when <tt>aRoundingStyle</tt> is the default rounding style.
+  */
+  public static Money of(long aMinorUnits, Currency aCurrency, RoundingMode aRoundingStyle){
+    if ( aRoundingStyle == DEFAULT_ROUNDING ) {
+      return of(aMinorUnits, aCurrency);
+    }
+    CurrencyDescriptor descriptor = CurrencyDescriptor.of(aCurrency);
+    BigDecimal amount = MinorUnits.toAmount(aMinorUnits, descriptor.getMinorUnitDigits());
+    return new Money(amount, descriptor, aRoundingStyle);
+  }
+  
   /** Return the amount passed to the constructor. */
   public BigDecimal getAmount() { return fAmount; }
   
@@ -105,7 +147,7 @@ public final class Money implements Comparable<Money>, Serializable {
   public boolean isSameCurrencyAs(Money aThat){
     boolean result = false;
      if ( aThat != null ) { 
-       result = this.fCurrency.equals(aThat.fCurrency);
+       result = this.fDescriptor == aThat.fDescriptor;
      }
      return result; 
   }
@@ -131,7 +173,7 @@ public final class Money implements Comparable<Money>, Serializable {
   */
   public Money plus(Money aThat){
     checkCurrenciesMatch(aThat);
-    return new Money(fAmount.add(aThat.fAmount), fCurrency, fRounding);
+    return new Money(fAmount.add(aThat.fAmount), fDescriptor, fRounding);
   }
 
   /** 
@@ -140,7 +182,7 @@ public final class Money implements Comparable<Money>, Serializable {
   */
   public Money minus(Money aThat){
     checkCurrenciesMatch(aThat);
-    return new Money(fAmount.subtract(aThat.fAmount), fCurrency, fRounding);
+    return new Money(fAmount.subtract(aThat.fAmount), fDescriptor, fRounding);
   }
 
   /**
@@ -161,6 +203,61 @@ public final class Money implements Comparable<Money>, Serializable {
     return sum;
   }
   
+  /**
+  * Sum a collection of <tt>Money</tt> objects, in parallel for large collections.
+  * 
+  * <P>Same result as {@link #sum(Collection, Currency)}, but without creating 
+  * intermediate <tt>Money</tt> objects. Collections of fewer than 8192 elements are 
+  * summed on the calling thread; larger ones are split into chunks, which are summed 
+  * on a shared pool of daemon threads, one per processor. Threads of the pool end 
+  * after a minute without work.
+  * 
+  * <P>(In a servlet environment, call {@link #shutdownParallelSum()} when the app 
+  * stops, or pass your own executor, so that no thread outlives the app's classloader.)
+  * 
+  * @param aMoneys collection of <tt>Money</tt> objects, all of the same currency.
+  * If the collection is empty, then a zero value is returned.
+  * @param aCurrencyIfEmpty is used only when <tt>aMoneys</tt> is empty; that way, this 
+  * method can return a zero amount in the desired currency.
+  */
+  public static Money parallelSum(Collection<Money> aMoneys, Currency aCurrencyIfEmpty){
+    return parallelSum(aMoneys, aCurrencyIfEmpty, ParallelSum.defaultExecutor());
+  }
+  
+  /**
+  * Stop the threads of the shared pool used by {@link #parallelSum(Collection, Currency)}. 
+  * Sums already running complete; a later parallel sum starts a new pool.
+  */
+  public static void shutdownParallelSum(){
+    ParallelSum.shutdownDefaultExecutor();
+  }
+  
+  /**
+  * Sum a collection of <tt>Money</tt> objects, using <tt>aExecutor</tt> to sum 
+  * large collections in parallel.
+  * See {@link #parallelSum(Collection, Currency)}.
+  */
+  public static Money parallelSum(Collection<Money> aMoneys, Currency aCurrencyIfEmpty, ExecutorService aExecutor){
+    return parallelSum(aMoneys.toArray(new Money[aMoneys.size()]), aCurrencyIfEmpty, aExecutor);
+  }
+  
+  /**
+  * Sum an array of <tt>Money</tt> objects, in parallel for large arrays.
+  * See {@link #parallelSum(Collection, Currency)}.
+  */
+  public static Money parallelSum(Money[] aMoneys, Currency aCurrencyIfEmpty){
+    return parallelSum(aMoneys, aCurrencyIfEmpty, ParallelSum.defaultExecutor());
+  }
+  
+  /**
+  * Sum an array of <tt>Money</tt> objects, using <tt>aExecutor</tt> to sum 
+  * large arrays in parallel.
+  * See {@link #parallelSum(Collection, Currency)}.
+  */
+  public static Money parallelSum(Money[] aMoneys, Currency aCurrencyIfEmpty, ExecutorService aExecutor){
+    return ParallelSum.sum(aMoneys, aCurrencyIfEmpty, aExecutor);
+  }
+  
   /** 
   * Equals (insensitive to scale).
   * 
@@ -226,7 +323,7 @@ public final class Money implements Comparable<Money>, Serializable {
   public Money times(int aFactor){  
     BigDecimal factor = new BigDecimal(aFactor);
     BigDecimal newAmount = fAmount.multiply(factor);
-    return new Money(newAmount, fCurrency, fRounding);
+    return new Money(newAmount, fDescriptor, fRounding);
   }
   
   /**
@@ -238,7 +335,31 @@ public final class Money implements Comparable<Money>, Serializable {
   public Money times(double aFactor){
     BigDecimal newAmount = fAmount.multiply(asBigDecimal(aFactor));
     newAmount = newAmount.setScale(getNumDecimalsForCurrency(), fRounding);
-    return  new Money(newAmount, fCurrency, fRounding);
+    return new Money(newAmount, fDescriptor, fRounding);
+  }
+  
+  /**
+  * Multiply this <tt>Money</tt> by an exact decimal factor, such as a rate read
+  * from a database, with no trip through <tt>double</tt>.
+  * 
+  * <P>The result is rounded to the number of decimals of the currency, the same
+  * way as {@link #times(double)}; <tt>times(0.0725)</tt> and 
+  * <tt>times(new BigDecimal("0.0725"))</tt> are equal.
+  */
+  public Money times(BigDecimal aFactor){
+    BigDecimal newAmount = fAmount.multiply(aFactor);
+    newAmount = newAmount.setScale(getNumDecimalsForCurrency(), fRounding);
+    return new Money(newAmount, fDescriptor, fRounding);
+  }
+  
+  /**
+  * Multiply this <tt>Money</tt> by the factor <tt>aUnscaledFactor x 10^-aScale</tt>;
+  * <tt>times(725, 4)</tt> multiplies by 0.0725. 
+  * 
+  * <P>Same as {@link #times(BigDecimal)}, for factors kept as scaled integers.
+  */
+  public Money times(long aUnscaledFactor, int aScale){
+    return times(BigDecimal.valueOf(aUnscaledFactor, aScale));
   }
   
   /**
@@ -250,7 +371,7 @@ public final class Money implements Comparable<Money>, Serializable {
   public Money div(int aDivisor){
     BigDecimal divisor = new BigDecimal(aDivisor);
     BigDecimal newAmount = fAmount.divide(divisor, fRounding);
-    return new Money(newAmount, fCurrency, fRounding);
+    return new Money(newAmount, fDescriptor, fRounding);
   }
 
   /**
@@ -261,7 +382,7 @@ public final class Money implements Comparable<Money>, Serializable {
   */
   public Money div(double aDivisor){  
     BigDecimal newAmount = fAmount.divide(asBigDecimal(aDivisor), fRounding);
-    return new Money(newAmount, fCurrency, fRounding);
+    return new Money(newAmount, fDescriptor, fRounding);
   }
 
   /** Return the absolute value of the amount. */
@@ -274,15 +395,72 @@ public final class Money implements Comparable<Money>, Serializable {
     return times(-1); 
   }
   
+  /**
+  * Split this <tt>Money</tt> into <tt>aParts</tt> amounts that add up to it exactly,
+  * such as to share a bill.
+  * 
+  * <P>Where <tt>div(3)</tt> rounds, so that three parts of 100.00 do not add up to 
+  * 100.00, this returns 33.34, 33.33 and 33.33: the parts differ by at most one minor
+  * unit, and the earlier parts take the units left over. Each part has the number of
+  * decimals of the currency. The split is done on minor units, in <tt>long</tt>
+  * arithmetic unless the amount does not fit.
+  * 
+  * @param aParts must be positive.
+  */
+  public Money[] allocate(int aParts){
+    if ( aParts <= 0 ) {
+      throw new IllegalArgumentException("Number of parts must be positive: " + aParts);
+    }
+    int digits = fDescriptor.getMinorUnitDigits();
+    try {
+      return toMoneys(Allocation.split(MinorUnits.of(fAmount, digits), aParts), digits);
+    }
+    catch (ArithmeticException ex){
+      long[] ratios = new long[aParts];
+      Arrays.fill(ratios, 1);
+      return allocate(ratios);
+    }
+  }
+  
+  /**
+  * Split this <tt>Money</tt> in proportion to <tt>aRatios</tt>, into amounts that add
+  * up to it exactly; <tt>allocate(new long[] {70, 30})</tt> of 0.05 gives 0.04 and 0.01.
+  * 
+  * <P>Each part first gets its share of the minor units rounded toward zero. The units
+  * left over then go one each to the parts whose shares lost the most to that rounding
+  * (the largest remainder method), the earlier part first among equals. Each part has 
+  * the number of decimals of the currency, and the sign of this amount. 
+  * 
+  * @param aRatios must hold at least one ratio; none may be negative, and they may
+  * not all be 0. A ratio of 0 gets a zero amount.
+  */
+  public Money[] allocate(long[] aRatios){
+    BigInteger sum = Allocation.checkRatios(aRatios);
+    int digits = fDescriptor.getMinorUnitDigits();
+    try {
+      return toMoneys(Allocation.split(MinorUnits.of(fAmount, digits), aRatios), digits);
+    }
+    catch (ArithmeticException ex){
+      BigInteger total = fAmount.setScale(digits).unscaledValue();
+      BigInteger[] parts = Allocation.split(total, aRatios, sum);
+      Money[] result = new Money[parts.length];
+      for(int i = 0; i < parts.length; ++i){
+        result[i] = new Money(new BigDecimal(parts[i], digits), fDescriptor, fRounding);
+      }
+      return result;
+    }
+  }
+  
   /**
   * Returns 
   * {@link #getAmount()}.getPlainString() + space + {@link #getCurrency()}.getSymbol().
   * 
   * <P>The return value uses the runtime's <em>default locale</em>, and will not 
-  * always be suitable for display to an end user.
+  * always be suitable for display to an end user. {@link MoneyFormat} gives a form 
+  * that does not depend on the locale, and parses it back.
   */
   public String toString(){
-    return fAmount.toPlainString() + " " + fCurrency.getSymbol();
+    return MoneyFormat.toString(fAmount, fDescriptor.getSymbol());
   }
   
   /**
@@ -299,7 +477,7 @@ public final class Money implements Comparable<Money>, Serializable {
     Money that = (Money)aThat;
     //the object fields are never null :
     boolean result = (this.fAmount.equals(that.fAmount) );
-    result = result && (this.fCurrency.equals(that.fCurrency) );
+    result = result && (this.fDescriptor == that.fDescriptor);
     result = result && (this.fRounding == that.fRounding);
     return result;
   }
@@ -351,6 +529,12 @@ public final class Money implements Comparable<Money>, Serializable {
   */
   private final Currency fCurrency;
   
+  /** 
+  * What is needed of <tt>fCurrency</tt>, looked up once; shared by all amounts in 
+  * the same currency. 
+  */
+  private transient CurrencyDescriptor fDescriptor;
+  
   /** 
   * The rounding style to be used. 
   * See {@link BigDecimal}.
@@ -408,6 +592,17 @@ public final class Money implements Comparable<Money>, Serializable {
     aOutputStream.defaultWriteObject();
   }  
 
+  /** 
+  * Constructor for amounts already known to be valid, such as the results of 
+  * arithmetic on valid amounts; skips {@link #validateState()}.
+  */
+  private Money(BigDecimal aAmount, CurrencyDescriptor aDescriptor, RoundingMode aRoundingStyle){
+    fAmount = aAmount;
+    fCurrency = aDescriptor.getCurrency();
+    fDescriptor = aDescriptor;
+    fRounding = aRoundingStyle;
+  }
+  
   private void validateState(){
     if( fAmount == null ) {
       throw new IllegalArgumentException("Amount cannot be null");
@@ -415,6 +610,13 @@ public final class Money implements Comparable<Money>, Serializable {
     if( fCurrency == null ) {
       throw new IllegalArgumentException("Currency cannot be null");
     }
+    //derived, hence transient; set here since both construction and 
+    //de-serialization pass through
+    fDescriptor = CurrencyDescriptor.of(fCurrency);
+    checkNumDecimals();
+  }
+  
+  private void checkNumDecimals(){
     if ( fAmount.scale() > getNumDecimalsForCurrency() ) {
       throw new IllegalArgumentException(
         "Number of decimals is " + fAmount.scale() + ", but currency only takes " + 
@@ -423,16 +625,53 @@ public final class Money implements Comparable<Money>, Serializable {
     }
   }
   
+  /**
+  * Create a <tt>Money</tt> without validating it, for amounts already known to be 
+  * valid, such as those built from minor units.
+  */
+  static Money trusted(BigDecimal aAmount, CurrencyDescriptor aDescriptor, RoundingMode aRoundingStyle){
+    return new Money(aAmount, aDescriptor, aRoundingStyle);
+  }
+  
+  /**
+  * Create a <tt>Money</tt> from an amount parsed or decoded from outside, checking its
+  * number of decimals as the constructor does; the amount must not be null.
+  */
+  static Money checked(BigDecimal aAmount, CurrencyDescriptor aDescriptor, RoundingMode aRoundingStyle){
+    Money result = new Money(aAmount, aDescriptor, aRoundingStyle);
+    result.checkNumDecimals();
+    return result;
+  }
+  
+  /** Descriptor of the currency of this <tt>Money</tt>. */
+  CurrencyDescriptor getDescriptor(){
+    return fDescriptor;
+  }
+  
+  /** Rounding style used by the terse constructors, shared with the other money types. */
+  static RoundingMode getDefaultRounding(){
+    return DEFAULT_ROUNDING;
+  }
+  
+  /** Currency used by the terse constructors, shared with the other money types. */
+  static Currency getDefaultCurrency(){
+    return DEFAULT_CURRENCY;
+  }
+  
+  private Money[] toMoneys(long[] aMinorUnits, int aDigits){
+    Money[] result = new Money[aMinorUnits.length];
+    for(int i = 0; i < aMinorUnits.length; ++i){
+      result[i] = new Money(MinorUnits.toAmount(aMinorUnits[i], aDigits), fDescriptor, fRounding);
+    }
+    return result;
+  }
+  
   private int getNumDecimalsForCurrency(){
-    return fCurrency.getDefaultFractionDigits();
+    return fDescriptor.getDigits();
   }
   
   private void checkCurrenciesMatch(Money aThat){
-    if (! this.fCurrency.equals(aThat.getCurrency())) {
-       throw new MismatchedCurrencyException(
-         aThat.getCurrency() + " doesn't match the expected currency : " + fCurrency
-       ); 
-    }
+    CurrencyDescriptor.checkSame(fDescriptor, aThat.fDescriptor);
   }
   
   /** Ignores scale: 0 same as 0.00 */
@@ -441,7 +680,7 @@ public final class Money implements Comparable<Money>, Serializable {
   }
   
   private BigDecimal asBigDecimal(double aDouble){
-    String asString = Double.toString(aDouble);
-    return new BigDecimal(asString);
+    //the value of new BigDecimal(Double.toString(aDouble)), without the String 
+    return MinorUnits.decimalOf(aDouble);
   }
 } 
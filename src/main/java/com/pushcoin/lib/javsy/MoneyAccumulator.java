@@ -0,0 +1,202 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+* Mutable running total of {@link Money} in one currency, such as the balance of an
+* account as entries are posted.
+*
+* <P>Where <tt>balance = balance.plus(entry)</tt> creates a new <tt>Money</tt> and
+* <tt>BigDecimal</tt> at each step, an accumulator keeps the total in minor units, in
+* a <tt>long</tt>, and changes it in place; only a total that outgrows the
+* <tt>long</tt> carries on in a {@link java.math.BigInteger}. A <tt>Money</tt> is
+* created only when {@link #toMoney()} is called, and equals what the chain of
+* <tt>plus</tt> and <tt>minus</tt> calls would have given.
+*
+* <PRE>
+* MoneyAccumulator balance = new MoneyAccumulator(usd);
+* for(Entry entry : entries){
+*   balance.add(entry.getAmount());
+* }
+* Money total = balance.toMoney();
+* </PRE>
+*
+* <P>Not thread-safe. Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneyAccumulator {
+
+  /** Zero total, with the default rounding style. */
+  public MoneyAccumulator(Currency aCurrency){
+    this(aCurrency, Money.getDefaultRounding());
+  }
+
+  /**
+  * Zero total.
+  * @param aCurrency is required; all amounts must be in this currency.
+  * @param aRoundingStyle is given to the total, and used by
+  * {@link #addProduct(Money, long, int)}.
+  */
+  public MoneyAccumulator(Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+  }
+
+  /** Add <tt>aMoney</tt> to the total. Currencies must match. */
+  public void add(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    BigDecimal amount = aMoney.getAmount();
+    fSum.add(amount, fDigits);
+    noteScale(amount.scale());
+  }
+
+  /** Subtract <tt>aMoney</tt> from the total. Currencies must match. */
+  public void subtract(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    BigDecimal amount = aMoney.getAmount();
+    try {
+      fSum.subtract(MinorUnits.of(amount, fDigits));
+    }
+    catch (ArithmeticException ex){
+      fSum.add(amount.negate(), fDigits);
+    }
+    noteScale(amount.scale());
+  }
+
+  /** Add <tt>aMinorUnits</tt>, such as cents, to the total. */
+  public void add(long aMinorUnits){
+    fSum.add(aMinorUnits);
+    noteScale(fDigits);
+  }
+
+  /** Subtract <tt>aMinorUnits</tt>, such as cents, from the total. */
+  public void subtract(long aMinorUnits){
+    fSum.subtract(aMinorUnits);
+    noteScale(fDigits);
+  }
+
+  /**
+  * Add <tt>aAmount</tt> x <tt>aQuantity</tt> to the total, such as a unit price times
+  * the number of units; the same as <tt>add(aAmount.times(aQuantity))</tt>, for any
+  * <tt>long</tt> quantity. Currencies must match.
+  */
+  public void addProduct(Money aAmount, long aQuantity){
+    CurrencyDescriptor.checkSame(fDescriptor, aAmount.getDescriptor());
+    BigDecimal amount = aAmount.getAmount();
+    try {
+      fSum.add(MinorUnits.multiplyExact(MinorUnits.of(amount, fDigits), aQuantity));
+    }
+    catch (ArithmeticException ex){
+      fSum.add(amount.multiply(BigDecimal.valueOf(aQuantity)), fDigits);
+    }
+    noteScale(amount.scale());
+  }
+
+  /**
+  * Add <tt>aAmount</tt> x <tt>aUnscaledFactor</tt> x 10^-<tt>aScale</tt> to the total,
+  * such as an amount times a rate of interest; <tt>addProduct(fee, 175, 4)</tt> adds
+  * 1.75% of <tt>fee</tt>. Each product is rounded to the minor unit the way
+  * {@link Money#times(long, int)} rounds, but with the rounding style of this
+  * accumulator. Currencies must match.
+  */
+  public void addProduct(Money aAmount, long aUnscaledFactor, int aScale){
+    CurrencyDescriptor.checkSame(fDescriptor, aAmount.getDescriptor());
+    BigDecimal amount = aAmount.getAmount();
+    if ( aScale >= 0 && aScale < MinorUnits.POWERS_OF_TEN.length ) {
+      try {
+        long product = MinorUnits.multiplyExact(MinorUnits.of(amount, fDigits), aUnscaledFactor);
+        fSum.add(MinorUnits.divide(product, MinorUnits.POWERS_OF_TEN[aScale], fRounding));
+        noteScale(fDigits);
+        return;
+      }
+      catch (ArithmeticException ex){
+        // fall through to BigDecimal
+      }
+    }
+    BigDecimal product = amount.multiply(BigDecimal.valueOf(aUnscaledFactor, aScale));
+    fSum.add(product.setScale(fDigits, fRounding), fDigits);
+    noteScale(fDigits);
+  }
+
+  /**
+  * Return the total. As with {@link Money#plus(Money)}, it has the largest scale of
+  * the amounts added or subtracted (and at least 0); adding minor units, or a
+  * rounded product, counts as an amount with the number of decimals of the currency.
+  */
+  public Money toMoney(){
+    BigDecimal amount = fSum.toAmount(fDigits).setScale(fMaxScale);
+    return Money.trusted(amount, fDescriptor, fRounding);
+  }
+
+  /**
+  * Return the total in minor units, such as cents.
+  * @throws ArithmeticException if the total does not fit in a <tt>long</tt>.
+  */
+  public long getMinorUnits(){
+    if ( ! fSum.isCompact() ) {
+      throw new ArithmeticException("long overflow");
+    }
+    return fSum.longValue();
+  }
+
+  /** Return -1, 0 or 1 as the total is negative, zero or positive. */
+  public int signum() { return fSum.signum(); }
+
+  /** Set the total back to zero, with a scale of 0. */
+  public void reset(){
+    fSum.reset();
+    fMaxScale = 0;
+  }
+
+  /** Return the currency passed to the constructor. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /** Return the rounding style passed to the constructor. */
+  public RoundingMode getRoundingStyle() { return fRounding; }
+
+  /** Returns the total, as in {@link #toMoney()}. */
+  public String toString(){
+    return toMoney().toString();
+  }
+
+  // PRIVATE //
+
+  private final Currency fCurrency;
+  private final RoundingMode fRounding;
+  private final CurrencyDescriptor fDescriptor;
+  private final int fDigits;
+
+  private final UnscaledSum fSum = new UnscaledSum();
+  private int fMaxScale;
+
+
+  private void noteScale(int aScale){
+    if ( aScale > fMaxScale ) {
+      fMaxScale = aScale;
+    }
+  }
+}
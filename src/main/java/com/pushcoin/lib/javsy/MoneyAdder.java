@@ -0,0 +1,249 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+* Thread-safe running total of {@link Money} in one currency, for totals updated by
+* many threads at once, such as live revenue.
+*
+* <P>An <tt>AtomicReference&lt;Money&gt;</tt> updated with <tt>plus</tt> in a
+* compare-and-set loop makes every thread retry on the one reference, and creates a
+* <tt>Money</tt> per attempt. This works like <tt>java.util.concurrent.atomic.LongAdder</tt>,
+* which is not available on Java 6, instead: the total is kept in minor units, at first
+* in a single <tt>long</tt>; once threads collide on it, each thread adds to one of
+* several cells, on cache lines of their own, and a thread that still collides moves
+* on to another cell. {@link #sum()} adds up the cells. An amount that would take a
+* cell past a <tt>long</tt> goes to a {@link BigInteger} instead.
+*
+* <P>As with <tt>LongAdder</tt>, {@link #sum()} is not an atomic snapshot: amounts
+* added while it runs may or may not be counted. Totals have the number of decimals
+* of the currency. Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneyAdder {
+
+  /** Zero total, with the default rounding style. */
+  public MoneyAdder(Currency aCurrency){
+    this(aCurrency, Money.getDefaultRounding());
+  }
+
+  /**
+  * Zero total.
+  * @param aCurrency is required; all amounts must be in this currency.
+  * @param aRoundingStyle is given to the totals.
+  */
+  public MoneyAdder(Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+  }
+
+  /** Add <tt>aMoney</tt> to the total. Currencies must match. */
+  public void add(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    BigDecimal amount = aMoney.getAmount();
+    long minorUnits;
+    try {
+      minorUnits = MinorUnits.of(amount, fDigits);
+    }
+    catch (ArithmeticException ex){
+      spill(amount.movePointRight(fDigits).toBigIntegerExact());
+      return;
+    }
+    add(minorUnits);
+  }
+
+  /** Subtract <tt>aMoney</tt> from the total, such as for a refund. Currencies must match. */
+  public void subtract(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    BigDecimal amount = aMoney.getAmount();
+    long minorUnits;
+    try {
+      minorUnits = MinorUnits.negateExact(MinorUnits.of(amount, fDigits));
+    }
+    catch (ArithmeticException ex){
+      spill(amount.negate().movePointRight(fDigits).toBigIntegerExact());
+      return;
+    }
+    add(minorUnits);
+  }
+
+  /** Add <tt>aMinorUnits</tt>, such as cents, to the total. */
+  public void add(long aMinorUnits){
+    AtomicLongArray cells = fCells;
+    if ( cells == null ) {
+      long base = fBase.get();
+      long sum = base + aMinorUnits;
+      if ( MinorUnits.addOverflows(base, aMinorUnits, sum) ) {
+        spill(BigInteger.valueOf(aMinorUnits));
+        return;
+      }
+      if ( fBase.compareAndSet(base, sum) ) {
+        return;
+      }
+      cells = cells();
+    }
+    int[] probe = PROBE.get();
+    int hash = probe[0];
+    for(;;){
+      int index = ((hash & (NUM_CELLS - 1)) + 1) * PADDING;
+      long cell = cells.get(index);
+      long sum = cell + aMinorUnits;
+      if ( MinorUnits.addOverflows(cell, aMinorUnits, sum) ) {
+        spill(BigInteger.valueOf(aMinorUnits));
+        return;
+      }
+      if ( cells.compareAndSet(index, cell, sum) ) {
+        return;
+      }
+      // another thread got there first; move this one to another cell
+      hash ^= hash << 13;
+      hash ^= hash >>> 17;
+      hash ^= hash << 5;
+      probe[0] = hash;
+    }
+  }
+
+  /**
+  * Return the total. Not an atomic snapshot when amounts are being added at the
+  * same time.
+  */
+  public Money sum(){
+    UnscaledSum total = new UnscaledSum();
+    total.add(fBase.get());
+    AtomicLongArray cells = fCells;
+    if ( cells != null ) {
+      for(int i = 1; i <= NUM_CELLS; ++i){
+        total.add(cells.get(i * PADDING));
+      }
+    }
+    total.add(fOverflow.get());
+    return toMoney(total);
+  }
+
+  /**
+  * Return the total, and set it back to zero. Amounts added at the same time are
+  * counted either in the total returned, or in the next one.
+  */
+  public Money sumThenReset(){
+    UnscaledSum total = new UnscaledSum();
+    total.add(fBase.getAndSet(0));
+    AtomicLongArray cells = fCells;
+    if ( cells != null ) {
+      for(int i = 1; i <= NUM_CELLS; ++i){
+        total.add(cells.getAndSet(i * PADDING, 0));
+      }
+    }
+    total.add(fOverflow.getAndSet(BigInteger.ZERO));
+    return toMoney(total);
+  }
+
+  /** Set the total back to zero. */
+  public void reset(){
+    sumThenReset();
+  }
+
+  /** Return the currency passed to the constructor. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /** Return the rounding style passed to the constructor. */
+  public RoundingMode getRoundingStyle() { return fRounding; }
+
+  /** Returns the total, as in {@link #sum()}. */
+  public String toString(){
+    return sum().toString();
+  }
+
+  // PRIVATE //
+
+  private final Currency fCurrency;
+  private final RoundingMode fRounding;
+  private final CurrencyDescriptor fDescriptor;
+  private final int fDigits;
+
+  /** The total, until threads collide on it; then a part of the total, like a cell. */
+  private final AtomicLong fBase = new AtomicLong();
+
+  /**
+  * Cells, null until threads collide on <tt>fBase</tt>. Cell <tt>i</tt>, from 1 to
+  * <tt>NUM_CELLS</tt>, is at <tt>i * PADDING</tt>; the longs in between are unused,
+  * and keep each cell on a cache line of its own.
+  */
+  private volatile AtomicLongArray fCells;
+
+  /** Amounts that would have taken a cell past a <tt>long</tt>. */
+  private final AtomicReference<BigInteger> fOverflow = new AtomicReference<BigInteger>(BigInteger.ZERO);
+
+  /** Longs from one cell to the next: 128 bytes, two cache lines, since CPUs often fetch lines in pairs. */
+  private static final int PADDING = 16;
+
+  /** A power of two, at least the number of processors, and at most 64. */
+  private static final int NUM_CELLS = numCells(Runtime.getRuntime().availableProcessors());
+
+  /**
+  * Per-thread hash picking a cell, never 0; changed when the thread collides with
+  * another, so that the two spread over the cells.
+  */
+  private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+    @Override protected int[] initialValue(){
+      return new int[] { fNextProbe.addAndGet(0x9E3779B9) | 1 };
+    }
+  };
+  private static final AtomicInteger fNextProbe = new AtomicInteger();
+
+  private static int numCells(int aProcessors){
+    int result = 1;
+    while ( result < aProcessors && result < 64 ) {
+      result <<= 1;
+    }
+    return result;
+  }
+
+  private synchronized AtomicLongArray cells(){
+    if ( fCells == null ) {
+      fCells = new AtomicLongArray((NUM_CELLS + 2) * PADDING);
+    }
+    return fCells;
+  }
+
+  private void spill(BigInteger aMinorUnits){
+    for(;;){
+      BigInteger overflow = fOverflow.get();
+      if ( fOverflow.compareAndSet(overflow, overflow.add(aMinorUnits)) ) {
+        return;
+      }
+    }
+  }
+
+  private Money toMoney(UnscaledSum aTotal){
+    return Money.trusted(aTotal.toAmount(fDigits), fDescriptor, fRounding);
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.*;
+import java.math.BigDecimal;
+
+/**
+* Running totals of {@link Money} in any number of currencies.
+*
+* <P>Amounts of mixed currencies are added in one pass, each to the total of its own
+* currency, where {@link Money#sum} would throw a
+* {@link Money.MismatchedCurrencyException}. Totals are kept in minor units, in small
+* arrays indexed by the order in which currencies were first seen. Each currency
+* finds its slot by a direct array lookup, so adding creates no objects. A total
+* that outgrows a <tt>long</tt> carries on in a {@link java.math.BigInteger}.
+*
+* <P>Not thread-safe. To total amounts from several threads, give each thread its own
+* <tt>MoneyBag</tt>, and {@link #merge} them when done. On Java 8, this is what a
+* mutable reduction does:
+*
+* <PRE>
+* MoneyBag totals = payments.parallelStream().collect(MoneyBag::new, MoneyBag::add, MoneyBag::merge);
+* </PRE>
+*
+* <P>Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneyBag {
+
+  /** Empty bag. */
+  public MoneyBag(){
+    fDescriptors = new CurrencyDescriptor[DEFAULT_CAPACITY];
+    fMaxScales = new int[DEFAULT_CAPACITY];
+    fSums = new UnscaledSum[DEFAULT_CAPACITY];
+  }
+
+  /** Add <tt>aMoney</tt> to the total of its currency. */
+  public void add(Money aMoney){
+    CurrencyDescriptor descriptor = aMoney.getDescriptor();
+    int slot = slotOf(descriptor);
+    BigDecimal amount = aMoney.getAmount();
+    if ( amount.scale() > fMaxScales[slot] ) {
+      fMaxScales[slot] = amount.scale();
+    }
+    fSums[slot].add(amount, descriptor.getMinorUnitDigits());
+  }
+
+  /** Add each of <tt>aMoneys</tt> to the total of its currency. */
+  public void addAll(Collection<Money> aMoneys){
+    for(Money money : aMoneys){
+      add(money);
+    }
+  }
+
+  /** Add the totals of <tt>aThat</tt> to the totals of this bag; <tt>aThat</tt> is left as is. */
+  public void merge(MoneyBag aThat){
+    for(int i = 0; i < aThat.fSize; ++i){
+      int slot = slotOf(aThat.fDescriptors[i]);
+      fSums[slot].add(aThat.fSums[i]);
+      fMaxScales[slot] = Math.max(fMaxScales[slot], aThat.fMaxScales[i]);
+    }
+  }
+
+  /**
+  * Total for <tt>aCurrency</tt>; zero if no amounts in that currency were added.
+  *
+  * <P>As with {@link Money#sum}, the total has the largest scale of the amounts
+  * added (and at least 0), and the default rounding style.
+  */
+  public Money get(Currency aCurrency){
+    int slot = find(CurrencyDescriptor.of(aCurrency));
+    if ( slot < 0 ) {
+      return new Money(BigDecimal.ZERO, aCurrency, Money.getDefaultRounding());
+    }
+    return total(slot);
+  }
+
+  /** Currencies with a total, in the order they were first added. */
+  public List<Currency> getCurrencies(){
+    List<Currency> result = new ArrayList<Currency>(fSize);
+    for(int i = 0; i < fSize; ++i){
+      result.add(fDescriptors[i].getCurrency());
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /** Totals per currency, in the order their currencies were first added. */
+  public Map<Currency, Money> toMap(){
+    Map<Currency, Money> result = new LinkedHashMap<Currency, Money>();
+    for(int i = 0; i < fSize; ++i){
+      result.put(fDescriptors[i].getCurrency(), total(i));
+    }
+    return result;
+  }
+
+  /** Number of currencies with a total. */
+  public int size() { return fSize; }
+
+  /** Return <tt>true</tt> only if nothing was added. */
+  public boolean isEmpty() { return fSize == 0; }
+
+  /** Returns the totals, as in {@link #toMap()}. */
+  public String toString(){
+    return toMap().values().toString();
+  }
+
+  // PRIVATE //
+
+  private CurrencyDescriptor[] fDescriptors;
+  private int[] fMaxScales;
+  private UnscaledSum[] fSums;
+  private int fSize;
+
+  /** Slot of each currency, plus one, indexed by descriptor id; 0 if it has no slot. */
+  private int[] fSlotsById = new int[0];
+
+  private static final int DEFAULT_CAPACITY = 4;
+
+  /** Slot of <tt>aDescriptor</tt>, or -1. */
+  private int find(CurrencyDescriptor aDescriptor){
+    int id = aDescriptor.getId();
+    return id < fSlotsById.length ? fSlotsById[id] - 1 : -1;
+  }
+
+  /** Slot of <tt>aDescriptor</tt>, added if missing. */
+  private int slotOf(CurrencyDescriptor aDescriptor){
+    int slot = find(aDescriptor);
+    if ( slot >= 0 ) {
+      return slot;
+    }
+    // rejects currencies without minor units before taking a slot
+    aDescriptor.getMinorUnitDigits();
+    if ( fSize == fDescriptors.length ) {
+      int capacity = fSize * 2;
+      fDescriptors = Arrays.copyOf(fDescriptors, capacity);
+      fMaxScales = Arrays.copyOf(fMaxScales, capacity);
+      fSums = Arrays.copyOf(fSums, capacity);
+    }
+    int id = aDescriptor.getId();
+    if ( id >= fSlotsById.length ) {
+      fSlotsById = Arrays.copyOf(fSlotsById, Math.max(id + 1, fSlotsById.length * 2));
+    }
+    slot = fSize++;
+    fDescriptors[slot] = aDescriptor;
+    fSums[slot] = new UnscaledSum();
+    fSlotsById[id] = slot + 1;
+    return slot;
+  }
+
+  private Money total(int aSlot){
+    CurrencyDescriptor descriptor = fDescriptors[aSlot];
+    BigDecimal amount = fSums[aSlot].toAmount(descriptor.getMinorUnitDigits()).setScale(fMaxScales[aSlot]);
+    return Money.trusted(amount, descriptor, Money.getDefaultRounding());
+  }
+}
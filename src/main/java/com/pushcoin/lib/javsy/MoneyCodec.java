@@ -0,0 +1,262 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+* Compact binary form of {@link Money}, for messages and storage.
+*
+* <P>Java serialization spends a few hundred bytes on class descriptors and on the
+* insides of <tt>BigDecimal</tt> and <tt>Currency</tt>. This codec writes, in order:
+* <ul>
+* <li>the currency, in 2 bytes, high byte first: the three letters of its ISO code,
+* 5 bits each (Java 6 has no numeric codes);
+* <li>one byte with the ordinal of the rounding style in the low 4 bits, 15 if there
+* is none, and the high bit set if the unscaled amount does not fit in a <tt>long</tt>;
+* <li>the scale of the amount, as a varint;
+* <li>the unscaled amount, as a varint; if it does not fit in a <tt>long</tt>, a
+* varint length followed by the bytes of {@link BigInteger#toByteArray()}.
+* </ul>
+* Varints take 7 bits per byte, low bits first, with the high bit set on all bytes
+* but the last. Signed values are zigzag-encoded first (0, -1, 1, -2, ... become
+* 0, 1, 2, 3, ...), so that small negative numbers stay short. 12.34 USD takes 6 bytes.
+*
+* <P>Decoding checks what the <tt>Money</tt> constructor checks. Malformed input is
+* rejected with an {@link IllegalArgumentException}. Input that ends too soon is
+* rejected with a {@link java.nio.BufferUnderflowException} by the <tt>ByteBuffer</tt>
+* methods, and with an {@link java.io.EOFException} by the <tt>DataInput</tt> method.
+* The byte order of a <tt>ByteBuffer</tt> does not matter; both forms are the same bytes.
+*/
+public final class MoneyCodec {
+
+  /** Most bytes taken by a <tt>Money</tt> whose unscaled amount fits in a <tt>long</tt>. */
+  public static final int MAX_COMPACT_SIZE = 2 + 1 + 5 + 10;
+
+  /**
+  * Most bytes of an unscaled amount that does not fit in a <tt>long</tt>, about 2400
+  * digits. Larger amounts are rejected, so corrupt input cannot ask for a large array.
+  */
+  public static final int MAX_BIG_AMOUNT_BYTES = 1024;
+
+  /**
+  * Write <tt>aMoney</tt> at the position of <tt>aBuffer</tt>, which advances.
+  * @throws java.nio.BufferOverflowException if <tt>aBuffer</tt> has too little room;
+  * part of the value may have been written.
+  */
+  public static void write(Money aMoney, ByteBuffer aBuffer){
+    BigDecimal amount = aMoney.getAmount();
+    BigInteger big = bigUnscaledValueOf(amount);
+    // not putShort, which would follow the byte order of the buffer
+    int currency = packCurrency(aMoney);
+    aBuffer.put((byte)(currency >>> 8));
+    aBuffer.put((byte)currency);
+    aBuffer.put(header(aMoney.getRoundingStyle(), big != null));
+    putVarint(aBuffer, zigzag(amount.scale()));
+    if ( big == null ) {
+      putVarint(aBuffer, zigzag(MinorUnits.of(amount, amount.scale())));
+    }
+    else {
+      byte[] bytes = big.toByteArray();
+      putVarint(aBuffer, bytes.length);
+      aBuffer.put(bytes);
+    }
+  }
+
+  /** Read a <tt>Money</tt> at the position of <tt>aBuffer</tt>, which advances. */
+  public static Money read(ByteBuffer aBuffer){
+    int currency = (aBuffer.get() & 0xFF) << 8;
+    currency |= aBuffer.get() & 0xFF;
+    CurrencyDescriptor descriptor = CurrencyDescriptor.ofPackedCode(currency);
+    byte header = aBuffer.get();
+    int scale = scaleOf(getVarint(aBuffer));
+    BigDecimal amount;
+    if ( (header & BIG_AMOUNT) == 0 ) {
+      amount = BigDecimal.valueOf(unzigzag(getVarint(aBuffer)), scale);
+    }
+    else {
+      byte[] bytes = new byte[bigAmountLengthOf(getVarint(aBuffer))];
+      aBuffer.get(bytes);
+      amount = new BigDecimal(new BigInteger(bytes), scale);
+    }
+    return toMoney(amount, descriptor, header);
+  }
+
+  /** Write <tt>aMoney</tt> to <tt>aOutput</tt>. */
+  public static void write(Money aMoney, DataOutput aOutput) throws IOException {
+    BigDecimal amount = aMoney.getAmount();
+    BigInteger big = bigUnscaledValueOf(amount);
+    aOutput.writeShort(packCurrency(aMoney));
+    aOutput.writeByte(header(aMoney.getRoundingStyle(), big != null));
+    writeVarint(aOutput, zigzag(amount.scale()));
+    if ( big == null ) {
+      writeVarint(aOutput, zigzag(MinorUnits.of(amount, amount.scale())));
+    }
+    else {
+      byte[] bytes = big.toByteArray();
+      writeVarint(aOutput, bytes.length);
+      aOutput.write(bytes);
+    }
+  }
+
+  /** Read a <tt>Money</tt> from <tt>aInput</tt>. */
+  public static Money read(DataInput aInput) throws IOException {
+    CurrencyDescriptor descriptor = CurrencyDescriptor.ofPackedCode(aInput.readShort());
+    byte header = aInput.readByte();
+    int scale = scaleOf(readVarint(aInput));
+    BigDecimal amount;
+    if ( (header & BIG_AMOUNT) == 0 ) {
+      amount = BigDecimal.valueOf(unzigzag(readVarint(aInput)), scale);
+    }
+    else {
+      byte[] bytes = new byte[bigAmountLengthOf(readVarint(aInput))];
+      aInput.readFully(bytes);
+      amount = new BigDecimal(new BigInteger(bytes), scale);
+    }
+    return toMoney(amount, descriptor, header);
+  }
+
+  // PRIVATE //
+
+  private MoneyCodec() {}
+
+  /** Header bit set when the unscaled amount is written as a BigInteger. */
+  private static final int BIG_AMOUNT = 0x80;
+  /** Header bits holding the rounding style. */
+  private static final int ROUNDING_MASK = 0x0F;
+  private static final int NO_ROUNDING = 0x0F;
+
+  /** RoundingMode.values() copies its array on each call. */
+  private static final RoundingMode[] ROUNDINGS = RoundingMode.values();
+
+  private static short packCurrency(Money aMoney){
+    int result = aMoney.getDescriptor().getPackedCode();
+    if ( result < 0 ) {
+      throw new IllegalArgumentException("Currency code is not three letters: " + aMoney.getCurrency());
+    }
+    return (short)result;
+  }
+
+  private static byte header(RoundingMode aRoundingStyle, boolean aBigAmount){
+    int result = aRoundingStyle == null ? NO_ROUNDING : aRoundingStyle.ordinal();
+    if ( aBigAmount ) {
+      result |= BIG_AMOUNT;
+    }
+    return (byte)result;
+  }
+
+  private static Money toMoney(BigDecimal aAmount, CurrencyDescriptor aDescriptor, byte aHeader){
+    if ( (aHeader & 0xFF & ~(BIG_AMOUNT | ROUNDING_MASK)) != 0 ) {
+      throw new IllegalArgumentException("Unknown header: " + aHeader);
+    }
+    int ordinal = aHeader & ROUNDING_MASK;
+    RoundingMode rounding = null;
+    if ( ordinal != NO_ROUNDING ) {
+      if ( ordinal >= ROUNDINGS.length ) {
+        throw new IllegalArgumentException("Unknown rounding style: " + ordinal);
+      }
+      rounding = ROUNDINGS[ordinal];
+    }
+    return Money.checked(aAmount, aDescriptor, rounding);
+  }
+
+  /** Unscaled value of <tt>aAmount</tt>, or null if it fits in a <tt>long</tt>. */
+  private static BigInteger bigUnscaledValueOf(BigDecimal aAmount){
+    if ( aAmount.precision() <= 18 ) {
+      return null;
+    }
+    BigInteger result = aAmount.unscaledValue();
+    if ( MinorUnits.fitsInLong(result) ) {
+      return null;
+    }
+    if ( result.bitLength() / 8 + 1 > MAX_BIG_AMOUNT_BYTES ) {
+      throw new IllegalArgumentException("Amount is too large to encode: " + aAmount.precision() + " digits");
+    }
+    return result;
+  }
+
+  private static int scaleOf(long aZigzag){
+    long result = unzigzag(aZigzag);
+    if ( result != (int)result ) {
+      throw new IllegalArgumentException("Scale out of range: " + result);
+    }
+    return (int)result;
+  }
+
+  private static int bigAmountLengthOf(long aLength){
+    if ( aLength <= 0 || aLength > MAX_BIG_AMOUNT_BYTES ) {
+      throw new IllegalArgumentException("Amount length out of range: " + aLength);
+    }
+    return (int)aLength;
+  }
+
+  private static long zigzag(long aValue){
+    return (aValue << 1) ^ (aValue >> 63);
+  }
+
+  private static long unzigzag(long aValue){
+    return (aValue >>> 1) ^ -(aValue & 1);
+  }
+
+  private static void putVarint(ByteBuffer aBuffer, long aValue){
+    while ( (aValue & ~0x7FL) != 0 ) {
+      aBuffer.put((byte)((aValue & 0x7F) | 0x80));
+      aValue >>>= 7;
+    }
+    aBuffer.put((byte)aValue);
+  }
+
+  private static void writeVarint(DataOutput aOutput, long aValue) throws IOException {
+    while ( (aValue & ~0x7FL) != 0 ) {
+      aOutput.writeByte((int)((aValue & 0x7F) | 0x80));
+      aValue >>>= 7;
+    }
+    aOutput.writeByte((int)aValue);
+  }
+
+  private static long getVarint(ByteBuffer aBuffer){
+    long result = 0;
+    for(int shift = 0; shift < 64; shift += 7){
+      byte next = aBuffer.get();
+      result |= (long)(next & 0x7F) << shift;
+      if ( next >= 0 ) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Varint longer than 10 bytes");
+  }
+
+  private static long readVarint(DataInput aInput) throws IOException {
+    long result = 0;
+    for(int shift = 0; shift < 64; shift += 7){
+      byte next = aInput.readByte();
+      result |= (long)(next & 0x7F) << shift;
+      if ( next >= 0 ) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Varint longer than 10 bytes");
+  }
+}
@@ -0,0 +1,301 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+* A column of amounts in one currency, held as a <tt>long[]</tt> of minor units.
+*
+* <P>Meant for bulk aggregation, such as ledger rollups over millions of entries:
+* {@link #sum()}, {@link #min()}, {@link #max()}, {@link #mean()}, {@link #filter} and
+* {@link #sumByGroup} work on the primitive array and create no objects per element.
+* {@link Money} objects are created only at the edges, when adding amounts to the
+* column and when returning results.
+*
+* <P>Sums never overflow; a total that exceeds a <tt>long</tt> is carried on in a
+* {@link java.math.BigInteger}. Each single amount must fit in a <tt>long</tt>, however.
+*
+* <P>Not thread-safe. Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneyColumn {
+
+  /** Selects amounts of a column, given in minor units. */
+  public interface AmountFilter {
+    boolean accept(long aMinorUnits);
+  }
+
+  /**
+  * Empty column.
+  *
+  * @param aCurrency is required.
+  * @param aRoundingStyle is required; it is used by {@link #mean()}, and given to the
+  * <tt>Money</tt> results.
+  */
+  public MoneyColumn(Currency aCurrency, RoundingMode aRoundingStyle){
+    this(new long[DEFAULT_CAPACITY], 0, aCurrency, aRoundingStyle);
+  }
+
+  /**
+  * Column holding a copy of <tt>aMinorUnits</tt>.
+  *
+  * @param aMinorUnits amounts in minor units of <tt>aCurrency</tt>; for example,
+  * <tt>1050</tt> is 10.50 US Dollars.
+  */
+  public MoneyColumn(long[] aMinorUnits, Currency aCurrency, RoundingMode aRoundingStyle){
+    this(Arrays.copyOf(aMinorUnits, Math.max(aMinorUnits.length, DEFAULT_CAPACITY)), aMinorUnits.length, aCurrency, aRoundingStyle);
+  }
+
+  /**
+  * Column of the amounts of <tt>aMoneys</tt>, all of which must be in <tt>aCurrency</tt>.
+  *
+  * @throws ArithmeticException if an amount does not fit in a <tt>long</tt> of minor units.
+  */
+  public static MoneyColumn of(Collection<Money> aMoneys, Currency aCurrency, RoundingMode aRoundingStyle){
+    MoneyColumn result = new MoneyColumn(new long[Math.max(aMoneys.size(), DEFAULT_CAPACITY)], 0, aCurrency, aRoundingStyle);
+    for(Money money : aMoneys){
+      result.add(money);
+    }
+    return result;
+  }
+
+  /**
+  * Append the amount of <tt>aMoney</tt>. Currencies must match.
+  *
+  * @throws ArithmeticException if the amount does not fit in a <tt>long</tt> of minor units.
+  */
+  public void add(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    add(MinorUnits.of(aMoney.getAmount(), fDigits));
+  }
+
+  /** Append an amount given in minor units. */
+  public void add(long aMinorUnits){
+    if ( fSize == fMinorUnits.length ) {
+      fMinorUnits = Arrays.copyOf(fMinorUnits, Math.max(DEFAULT_CAPACITY, fSize + (fSize >> 1)));
+    }
+    fMinorUnits[fSize++] = aMinorUnits;
+  }
+
+  /** Number of amounts in this column. */
+  public int size() { return fSize; }
+
+  /** Return the currency passed to the constructor. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /** Return the rounding style passed to the constructor. */
+  public RoundingMode getRoundingStyle() { return fRounding; }
+
+  /** Amount at <tt>aIndex</tt>, in minor units. */
+  public long getMinorUnits(int aIndex){
+    checkIndex(aIndex);
+    return fMinorUnits[aIndex];
+  }
+
+  /** Amount at <tt>aIndex</tt>. */
+  public Money get(int aIndex){
+    return toMoney(getMinorUnits(aIndex));
+  }
+
+  /** Copy of the amounts, in minor units. */
+  public long[] toArray(){
+    return Arrays.copyOf(fMinorUnits, fSize);
+  }
+
+  /** The amounts as <tt>Money</tt> objects, with the scale of the currency. */
+  public List<Money> toList(){
+    List<Money> result = new ArrayList<Money>(fSize);
+    for(int i = 0; i < fSize; ++i){
+      result.add(toMoney(fMinorUnits[i]));
+    }
+    return result;
+  }
+
+  /**
+  * Sum of all amounts; zero if the column is empty.
+  *
+  * <P>Equal (by {@link Money#eq}) to {@link Money#sum} of the same amounts.
+  */
+  public Money sum(){
+    UnscaledSum sum = sumOf();
+    return new Money(sum.toAmount(fDigits), fCurrency, fRounding);
+  }
+
+  /**
+  * Smallest amount.
+  * @throws NoSuchElementException if the column is empty.
+  */
+  public Money min(){
+    checkNotEmpty();
+    long min = fMinorUnits[0];
+    for(int i = 1; i < fSize; ++i){
+      if ( fMinorUnits[i] < min ) min = fMinorUnits[i];
+    }
+    return toMoney(min);
+  }
+
+  /**
+  * Largest amount.
+  * @throws NoSuchElementException if the column is empty.
+  */
+  public Money max(){
+    checkNotEmpty();
+    long max = fMinorUnits[0];
+    for(int i = 1; i < fSize; ++i){
+      if ( fMinorUnits[i] > max ) max = fMinorUnits[i];
+    }
+    return toMoney(max);
+  }
+
+  /**
+  * Average amount, rounded to the decimals of the currency with the rounding style
+  * of this column, as {@link Money#div(int)} would round the sum.
+  * @throws NoSuchElementException if the column is empty.
+  */
+  public Money mean(){
+    checkNotEmpty();
+    UnscaledSum sum = sumOf();
+    if ( sum.isCompact() ) {
+      return toMoney(MinorUnits.divide(sum.longValue(), fSize, fRounding));
+    }
+    BigDecimal mean = sum.toAmount(fDigits).divide(BigDecimal.valueOf(fSize), fRounding);
+    return new Money(mean, fCurrency, fRounding);
+  }
+
+  /** New column with the amounts accepted by <tt>aFilter</tt>, in the same order. */
+  public MoneyColumn filter(AmountFilter aFilter){
+    long[] selected = new long[fSize];
+    int count = 0;
+    for(int i = 0; i < fSize; ++i){
+      long amount = fMinorUnits[i];
+      if ( aFilter.accept(amount) ) {
+        selected[count++] = amount;
+      }
+    }
+    return new MoneyColumn(selected, count, fCurrency, fRounding);
+  }
+
+  /**
+  * Sums per group.
+  *
+  * @param aGroupIds group of each amount, parallel to this column; ids
+  * run from <tt>0</tt> to <tt>aGroupCount - 1</tt>.
+  * @param aGroupCount number of groups.
+  * @return sum of each group, indexed by group id; zero for empty groups.
+  */
+  public Money[] sumByGroup(int[] aGroupIds, int aGroupCount){
+    if ( aGroupIds.length < fSize ) {
+      throw new IllegalArgumentException(
+        "Group ids cover " + aGroupIds.length + " amounts, but column has " + fSize
+      );
+    }
+    long[] sums = new long[aGroupCount];
+    UnscaledSum[] overflows = null;
+    for(int i = 0; i < fSize; ++i){
+      int group = aGroupIds[i];
+      long amount = fMinorUnits[i];
+      long sum = sums[group] + amount;
+      if ( MinorUnits.addOverflows(sums[group], amount, sum) ) {
+        // rare: carry on for this group in an UnscaledSum
+        if ( overflows == null ) {
+          overflows = new UnscaledSum[aGroupCount];
+        }
+        if ( overflows[group] == null ) {
+          overflows[group] = new UnscaledSum();
+        }
+        overflows[group].add(sums[group]);
+        sum = amount;
+      }
+      sums[group] = sum;
+    }
+
+    Money[] result = new Money[aGroupCount];
+    for(int group = 0; group < aGroupCount; ++group){
+      if ( overflows != null && overflows[group] != null ) {
+        overflows[group].add(sums[group]);
+        result[group] = new Money(overflows[group].toAmount(fDigits), fCurrency, fRounding);
+      }
+      else {
+        result[group] = toMoney(sums[group]);
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE //
+
+  private long[] fMinorUnits;
+  private int fSize;
+  private final Currency fCurrency;
+  private final RoundingMode fRounding;
+  private final CurrencyDescriptor fDescriptor;
+  private final int fDigits;
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** Column taking ownership of <tt>aMinorUnits</tt>, without a copy. */
+  MoneyColumn(long[] aMinorUnits, int aSize, Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    if( aRoundingStyle == null ) {
+      throw new IllegalArgumentException("Rounding style cannot be null");
+    }
+    fMinorUnits = aMinorUnits;
+    fSize = aSize;
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+  }
+
+  private UnscaledSum sumOf(){
+    UnscaledSum result = new UnscaledSum();
+    long sum = 0;
+    for(int i = 0; i < fSize; ++i){
+      long amount = fMinorUnits[i];
+      long next = sum + amount;
+      if ( MinorUnits.addOverflows(sum, amount, next) ) {
+        result.add(sum);
+        next = amount;
+      }
+      sum = next;
+    }
+    result.add(sum);
+    return result;
+  }
+
+  private Money toMoney(long aMinorUnits){
+    return Money.of(aMinorUnits, fCurrency, fRounding);
+  }
+
+  private void checkIndex(int aIndex){
+    if ( aIndex < 0 || aIndex >= fSize ) {
+      throw new IndexOutOfBoundsException("Index: " + aIndex + ", size: " + fSize);
+    }
+  }
+
+  private void checkNotEmpty(){
+    if ( fSize == 0 ) {
+      throw new NoSuchElementException("Column is empty");
+    }
+  }
+}
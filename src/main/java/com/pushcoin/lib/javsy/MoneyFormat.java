@@ -0,0 +1,288 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+* Plain text form of {@link Money}: the amount as by {@link BigDecimal#toPlainString()},
+* a space, and the ISO code of the currency, as in <tt>"-1234.50 USD"</tt>.
+*
+* <P>Amounts of up to 18 digits are written straight from their unscaled
+* <tt>long</tt> value, and read into one, without going through {@link BigDecimal}'s
+* own parsing and formatting or a {@link java.util.Locale}. Text can be written to an
+* {@link Appendable}, such as a <tt>StringBuilder</tt> or a <tt>Writer</tt>, or into
+* a <tt>char[]</tt>, and read from any {@link CharSequence}.
+*
+* <P>Unlike {@link Money#toString()}, which ends with the currency symbol of the
+* default locale, the text is the same everywhere, and {@link #parse} reads back
+* whatever {@link #format} writes.
+*/
+public final class MoneyFormat {
+
+  /**
+  * Return the text of <tt>aMoney</tt>, such as <tt>"12.30 USD"</tt>. The amount keeps 
+  * its scale: trailing zeros are written, and there is no exponent.
+  */
+  public static String format(Money aMoney){
+    return toString(aMoney.getAmount(), aMoney.getCurrency().getCurrencyCode());
+  }
+
+  /** Append the text of <tt>aMoney</tt> to <tt>aOutput</tt>. */
+  public static void format(Money aMoney, Appendable aOutput) throws IOException {
+    BigDecimal amount = aMoney.getAmount();
+    if ( isCompact(amount) ) {
+      int maxLength = maxAmountLength(amount.scale());
+      char[] chars = maxLength <= SCRATCH_LENGTH ? SCRATCH.get() : new char[maxLength];
+      int length = writeAmount(MinorUnits.of(amount, amount.scale()), amount.scale(), chars, 0);
+      for(int i = 0; i < length; ++i){
+        aOutput.append(chars[i]);
+      }
+    }
+    else {
+      aOutput.append(amount.toPlainString());
+    }
+    aOutput.append(' ').append(aMoney.getCurrency().getCurrencyCode());
+  }
+
+  /**
+  * Write the text of <tt>aMoney</tt> into <tt>aDest</tt>, from <tt>aOffset</tt> on. 
+  * 
+  * @return the offset just past the text written.
+  * @throws IndexOutOfBoundsException if the text does not fit, in which case nothing
+  * is written.
+  */
+  public static int format(Money aMoney, char[] aDest, int aOffset){
+    BigDecimal amount = aMoney.getAmount();
+    String code = aMoney.getCurrency().getCurrencyCode();
+    int end;
+    if ( isCompact(amount) ) {
+      long unscaled = MinorUnits.of(amount, amount.scale());
+      checkRoom(aDest, aOffset, amountLength(unscaled, amount.scale()) + 1 + code.length());
+      end = writeAmount(unscaled, amount.scale(), aDest, aOffset);
+    }
+    else {
+      String plain = amount.toPlainString();
+      checkRoom(aDest, aOffset, plain.length() + 1 + code.length());
+      plain.getChars(0, plain.length(), aDest, aOffset);
+      end = aOffset + plain.length();
+    }
+    aDest[end++] = ' ';
+    code.getChars(0, code.length(), aDest, end);
+    return end + code.length();
+  }
+
+  /**
+  * Read a <tt>Money</tt> from text such as <tt>"12.30 USD"</tt>, with the default 
+  * rounding style. See {@link #parse(CharSequence, int, int, RoundingMode)}.
+  */
+  public static Money parse(CharSequence aText){
+    return parse(aText, 0, aText.length(), Money.getDefaultRounding());
+  }
+
+  /** 
+  * Read a <tt>Money</tt> from text such as <tt>"12.30 USD"</tt>.
+  * See {@link #parse(CharSequence, int, int, RoundingMode)}.
+  */
+  public static Money parse(CharSequence aText, RoundingMode aRoundingStyle){
+    return parse(aText, 0, aText.length(), aRoundingStyle);
+  }
+
+  /**
+  * Read a <tt>Money</tt> from the characters of <tt>aText</tt> from <tt>aStart</tt>,
+  * up to but excluding <tt>aEnd</tt>.
+  *
+  * <P>The text is an optional sign, digits with an optional decimal point, one space,
+  * and a three-letter ISO currency code; there is no exponent, and no other spaces.
+  * The amount keeps the decimals given, as {@link BigDecimal#BigDecimal(String)}
+  * would, and there may not be more of them than the currency takes.
+  *
+  * @throws NumberFormatException if the text is not of that form.
+  * @throws IllegalArgumentException if the code is not that of a currency, or the
+  * amount has too many decimals.
+  */
+  public static Money parse(CharSequence aText, int aStart, int aEnd, RoundingMode aRoundingStyle){
+    if ( aStart < 0 || aEnd > aText.length() || aStart > aEnd ) {
+      throw new IndexOutOfBoundsException("Range [" + aStart + ", " + aEnd + ") of text of length " + aText.length());
+    }
+    // the currency code, after the one space
+    int amountEnd = aEnd - 4;
+    if ( amountEnd <= aStart || aText.charAt(amountEnd) != ' ' ) {
+      throw notMoney(aText, aStart, aEnd);
+    }
+    int packedCode = CurrencyDescriptor.packCode(aText.charAt(aEnd - 3), aText.charAt(aEnd - 2), aText.charAt(aEnd - 1));
+    if ( packedCode < 0 ) {
+      throw notMoney(aText, aStart, aEnd);
+    }
+    CurrencyDescriptor descriptor = CurrencyDescriptor.ofPackedCode(packedCode);
+
+    int i = aStart;
+    char sign = aText.charAt(i);
+    if ( sign == '-' || sign == '+' ) {
+      ++i;
+    }
+    long unscaled = 0;
+    int numSignificant = 0;
+    int scale = -1;
+    boolean hasDigits = false;
+    for(; i < amountEnd; ++i){
+      char next = aText.charAt(i);
+      if ( next >= '0' && next <= '9' ) {
+        hasDigits = true;
+        if ( unscaled != 0 || next != '0' ) {
+          ++numSignificant;
+        }
+        // past 18 digits the long may overflow; BigDecimal takes over below
+        unscaled = unscaled * 10 + (next - '0');
+        if ( scale >= 0 ) {
+          ++scale;
+        }
+      }
+      else if ( next == '.' && scale < 0 ) {
+        scale = 0;
+      }
+      else {
+        throw notMoney(aText, aStart, aEnd);
+      }
+    }
+    if ( ! hasDigits ) {
+      throw notMoney(aText, aStart, aEnd);
+    }
+    BigDecimal amount;
+    if ( numSignificant > 18 ) {
+      amount = new BigDecimal(aText.subSequence(aStart, amountEnd).toString());
+    }
+    else {
+      amount = BigDecimal.valueOf(sign == '-' ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+    return Money.checked(amount, descriptor, aRoundingStyle);
+  }
+
+  // PRIVATE //
+
+  private MoneyFormat() {}
+
+  /** 
+  * <tt>aAmount.toPlainString() + " " + aSuffix</tt>, with the amount written from 
+  * its unscaled <tt>long</tt> when it fits; shared with the <tt>toString</tt> methods.
+  */
+  static String toString(BigDecimal aAmount, String aSuffix){
+    if ( ! isCompact(aAmount) ) {
+      return aAmount.toPlainString() + " " + aSuffix;
+    }
+    return toString(MinorUnits.of(aAmount, aAmount.scale()), aAmount.scale(), aSuffix);
+  }
+
+  /** As {@link #toString(BigDecimal, String)}, for an amount held as unscaled and scale. */
+  static String toString(long aUnscaled, int aScale, String aSuffix){
+    char[] chars = new char[maxAmountLength(aScale) + 1 + aSuffix.length()];
+    int end = writeAmount(aUnscaled, aScale, chars, 0);
+    chars[end++] = ' ';
+    aSuffix.getChars(0, aSuffix.length(), chars, end);
+    return new String(chars, 0, end + aSuffix.length());
+  }
+
+  /**
+  * Per-thread buffer for amounts written to an <tt>Appendable</tt>, so that a call
+  * does not allocate one; longer amounts get their own.
+  */
+  private static final int SCRATCH_LENGTH = 64;
+  private static final ThreadLocal<char[]> SCRATCH = new ThreadLocal<char[]>() {
+    @Override protected char[] initialValue(){
+      return new char[SCRATCH_LENGTH];
+    }
+  };
+
+  /** 
+  * True if the amount is written from its unscaled <tt>long</tt>; zero with a negative 
+  * scale is left to <tt>toPlainString</tt>, whose output for it varies among releases.
+  */
+  private static boolean isCompact(BigDecimal aAmount){
+    return aAmount.precision() <= 18 && (aAmount.scale() >= 0 || aAmount.signum() != 0);
+  }
+
+  /** Longest text of an amount of 19 digits or less with aScale: sign, digits, "0.", zeros. */
+  private static int maxAmountLength(int aScale){
+    return 1 + 19 + 2 + Math.abs(aScale);
+  }
+
+  private static int amountLength(long aUnscaled, int aScale){
+    int numDigits = numDigits(aUnscaled);
+    int length = (aUnscaled < 0) ? 1 : 0;
+    if ( aScale <= 0 ) {
+      return length + numDigits - aScale;
+    }
+    return length + Math.max(numDigits, aScale + 1) + 1;
+  }
+
+  /** Number of decimal digits of aValue, ignoring the sign; 1 for 0. */
+  private static int numDigits(long aValue){
+    int result = 1;
+    for(long rest = aValue / 10; rest != 0; rest /= 10){
+      ++result;
+    }
+    return result;
+  }
+
+  /**
+  * Write <tt>aUnscaled x 10^-aScale</tt> as <tt>toPlainString</tt> would, from 
+  * <tt>aOffset</tt> on, and return the offset just past it. The caller makes room.
+  */
+  private static int writeAmount(long aUnscaled, int aScale, char[] aDest, int aOffset){
+    int start = aOffset;
+    if ( aUnscaled < 0 ) {
+      aDest[start++] = '-';
+    }
+    int end = aOffset + amountLength(aUnscaled, aScale);
+    int pos = end;
+    // digits come out of a non-positive value, so that Long.MIN_VALUE needs no care
+    long rest = (aUnscaled < 0) ? aUnscaled : -aUnscaled;
+    if ( aScale <= 0 ) {
+      for(int i = 0; i < -aScale; ++i){
+        aDest[--pos] = '0';
+      }
+    }
+    else {
+      for(int i = 0; i < aScale; ++i){
+        aDest[--pos] = (char)('0' - (rest % 10));
+        rest /= 10;
+      }
+      aDest[--pos] = '.';
+    }
+    do {
+      aDest[--pos] = (char)('0' - (rest % 10));
+      rest /= 10;
+    } while ( pos > start );
+    return end;
+  }
+
+  private static void checkRoom(char[] aDest, int aOffset, int aLength){
+    if ( aOffset < 0 || aOffset > aDest.length - aLength ) {
+      throw new IndexOutOfBoundsException(
+        "Text of " + aLength + " chars at " + aOffset + " does not fit in " + aDest.length
+      );
+    }
+  }
+
+  private static NumberFormatException notMoney(CharSequence aText, int aStart, int aEnd){
+    return new NumberFormatException("Not a money amount: '" + aText.subSequence(aStart, aEnd) + "'");
+  }
+}
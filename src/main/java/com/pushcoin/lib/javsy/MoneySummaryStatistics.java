@@ -0,0 +1,183 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+* Count, sum, minimum, maximum and average of {@link Money} amounts in one currency.
+*
+* <P>The sum is kept in minor units, spilling into a {@link java.math.BigInteger} only
+* if it outgrows a <tt>long</tt>, so {@link #accept} creates no objects. Partial
+* statistics gathered separately, such as by several threads, are put together with
+* {@link #combine}. On Java 8 this fits a mutable reduction directly:
+*
+* <PRE>
+* MoneySummaryStatistics stats = payments.stream().collect(
+*   () -> new MoneySummaryStatistics(usd),
+*   MoneySummaryStatistics::accept,
+*   MoneySummaryStatistics::combine
+* );
+* </PRE>
+*
+* <P>Not thread-safe. Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneySummaryStatistics {
+
+  /**
+  * Empty statistics, whose sum and average take the default rounding style.
+  * @param aCurrency is required; all amounts must be in this currency.
+  */
+  public MoneySummaryStatistics(Currency aCurrency){
+    this(aCurrency, Money.getDefaultRounding());
+  }
+
+  /**
+  * Empty statistics.
+  * @param aCurrency is required; all amounts must be in this currency.
+  * @param aRoundingStyle is used by {@link #getAverage()}, and given to the sum and
+  * average.
+  */
+  public MoneySummaryStatistics(Currency aCurrency, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+  }
+
+  /** Record <tt>aMoney</tt>. Currencies must match. */
+  public void accept(Money aMoney){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    BigDecimal amount = aMoney.getAmount();
+    fSum.add(amount, fDigits);
+    if ( amount.scale() > fMaxScale ) {
+      fMaxScale = amount.scale();
+    }
+    if ( fCount == 0 || amount.compareTo(fMin.getAmount()) < 0 ) {
+      fMin = aMoney;
+    }
+    if ( fCount == 0 || amount.compareTo(fMax.getAmount()) > 0 ) {
+      fMax = aMoney;
+    }
+    ++fCount;
+  }
+
+  /**
+  * Add the amounts recorded by <tt>aThat</tt> to these statistics; <tt>aThat</tt>
+  * is left as is. Currencies must match.
+  */
+  public void combine(MoneySummaryStatistics aThat){
+    CurrencyDescriptor.checkSame(fDescriptor, aThat.fDescriptor);
+    if ( aThat.fCount == 0 ) {
+      return;
+    }
+    fSum.add(aThat.fSum);
+    fMaxScale = Math.max(fMaxScale, aThat.fMaxScale);
+    if ( fCount == 0 || aThat.fMin.getAmount().compareTo(fMin.getAmount()) < 0 ) {
+      fMin = aThat.fMin;
+    }
+    if ( fCount == 0 || aThat.fMax.getAmount().compareTo(fMax.getAmount()) > 0 ) {
+      fMax = aThat.fMax;
+    }
+    fCount += aThat.fCount;
+  }
+
+  /** Number of amounts recorded. */
+  public long getCount() { return fCount; }
+
+  /** Return the currency passed to the constructor. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /**
+  * Sum of the amounts; zero if none were recorded.
+  *
+  * <P>As with {@link Money#sum}, the amount has the largest scale of the amounts
+  * recorded (and at least 0).
+  */
+  public Money getSum(){
+    BigDecimal amount = fSum.toAmount(fDigits).setScale(fMaxScale);
+    return new Money(amount, fCurrency, fRounding);
+  }
+
+  /**
+  * Average of the amounts, with the scale of {@link #getSum()}, rounded the way
+  * {@link Money#div(int)} rounds; zero if none were recorded.
+  */
+  public Money getAverage(){
+    Money sum = getSum();
+    if ( fCount == 0 ) {
+      return sum;
+    }
+    BigDecimal average = sum.getAmount().divide(BigDecimal.valueOf(fCount), fRounding);
+    return new Money(average, fCurrency, fRounding);
+  }
+
+  /**
+  * Smallest amount recorded; the first one recorded, if several are equal.
+  * @throws NoSuchElementException if none were recorded.
+  */
+  public Money getMin(){
+    checkNotEmpty();
+    return fMin;
+  }
+
+  /**
+  * Largest amount recorded; the first one recorded, if several are equal.
+  * @throws NoSuchElementException if none were recorded.
+  */
+  public Money getMax(){
+    checkNotEmpty();
+    return fMax;
+  }
+
+  /** Count, sum, minimum, average and maximum, for logging. */
+  public String toString(){
+    if ( fCount == 0 ) {
+      return "MoneySummaryStatistics{count=0, sum=" + getSum() + "}";
+    }
+    return "MoneySummaryStatistics{count=" + fCount + ", sum=" + getSum() +
+      ", min=" + fMin + ", average=" + getAverage() + ", max=" + fMax + "}";
+  }
+
+  // PRIVATE //
+
+  private final Currency fCurrency;
+  private final RoundingMode fRounding;
+  private final CurrencyDescriptor fDescriptor;
+  private final int fDigits;
+
+  private final UnscaledSum fSum = new UnscaledSum();
+  private int fMaxScale;
+  private long fCount;
+
+  /** Amounts as recorded; only valid when <tt>fCount</tt> is not 0. */
+  private Money fMin;
+  private Money fMax;
+
+  private void checkNotEmpty(){
+    if ( fCount == 0 ) {
+      throw new NoSuchElementException("No amounts recorded");
+    }
+  }
+}
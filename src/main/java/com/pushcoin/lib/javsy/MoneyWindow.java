@@ -0,0 +1,254 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+* Total of the {@link Money} amounts recorded over a moving span of time, such as the
+* revenue of the last hour, kept up to date as amounts are recorded.
+*
+* <P>Time is cut into buckets of a fixed width, and the window covers the newest
+* bucket and the ones before it, <tt>aBucketCount</tt> in all; one bucket makes a
+* tumbling window, several a sliding one that moves a bucket at a time. The buckets
+* are a ring of minor-unit sums, and the window keeps their total: recording an amount
+* adds it to its bucket and to the total, and moving the window on subtracts the
+* buckets that fall out. Both take constant time, and so does reading the total,
+* instead of summing all amounts in the window on each read.
+*
+* <PRE>
+* // revenue of the last hour, by the minute; times in milliseconds
+* MoneyWindow revenue = new MoneyWindow(usd, 60 * 1000, 60);
+* revenue.add(payment.getAmount(), payment.getTime());
+* ...
+* Money lastHour = revenue.getTotal(System.currentTimeMillis());
+* </PRE>
+*
+* <P>Times are any <tt>long</tt> values, such as milliseconds since the epoch, in the
+* unit of the bucket width. A time past the newest bucket moves the window on; amounts
+* whose time falls before the window are too late and are ignored. Totals have the
+* number of decimals of the currency, and grow past a <tt>long</tt> if they need to.
+*
+* <P>Not thread-safe. Currencies without minor units, such as gold, are not supported.
+*/
+public final class MoneyWindow {
+
+  /** Empty window, whose totals take the default rounding style. */
+  public MoneyWindow(Currency aCurrency, long aBucketWidth, int aBucketCount){
+    this(aCurrency, aBucketWidth, aBucketCount, Money.getDefaultRounding());
+  }
+
+  /**
+  * Empty window.
+  * @param aCurrency is required; all amounts must be in this currency.
+  * @param aBucketWidth span of time of a bucket, greater than 0.
+  * @param aBucketCount number of buckets in the window, greater than 0.
+  * @param aRoundingStyle is given to the totals.
+  */
+  public MoneyWindow(Currency aCurrency, long aBucketWidth, int aBucketCount, RoundingMode aRoundingStyle){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    if ( aBucketWidth <= 0 ) {
+      throw new IllegalArgumentException("Bucket width must be greater than 0: " + aBucketWidth);
+    }
+    if ( aBucketCount <= 0 ) {
+      throw new IllegalArgumentException("Bucket count must be greater than 0: " + aBucketCount);
+    }
+    fCurrency = aCurrency;
+    fRounding = aRoundingStyle;
+    fDescriptor = CurrencyDescriptor.of(aCurrency);
+    fDigits = fDescriptor.getMinorUnitDigits();
+    fBucketWidth = aBucketWidth;
+    fBuckets = new UnscaledSum[aBucketCount];
+    for(int i = 0; i < aBucketCount; ++i){
+      fBuckets[i] = new UnscaledSum();
+    }
+  }
+
+  /**
+  * Record <tt>aMoney</tt> at <tt>aTime</tt>. Currencies must match.
+  * @return <tt>false</tt> if <tt>aTime</tt> falls before the window, and the amount
+  * was ignored.
+  */
+  public boolean add(Money aMoney, long aTime){
+    CurrencyDescriptor.checkSame(fDescriptor, aMoney.getDescriptor());
+    UnscaledSum bucket = bucketAt(aTime);
+    if ( bucket == null ) {
+      return false;
+    }
+    bucket.add(aMoney.getAmount(), fDigits);
+    fTotal.add(aMoney.getAmount(), fDigits);
+    return true;
+  }
+
+  /**
+  * Record <tt>aMinorUnits</tt>, such as cents, at <tt>aTime</tt>.
+  * @return <tt>false</tt> if <tt>aTime</tt> falls before the window, and the amount
+  * was ignored.
+  */
+  public boolean add(long aMinorUnits, long aTime){
+    UnscaledSum bucket = bucketAt(aTime);
+    if ( bucket == null ) {
+      return false;
+    }
+    bucket.add(aMinorUnits);
+    fTotal.add(aMinorUnits);
+    return true;
+  }
+
+  /**
+  * Move the window on so that its newest bucket holds <tt>aTime</tt>, dropping the
+  * buckets that fall out. Times not past the newest bucket leave the window as is.
+  */
+  public void advanceTo(long aTime){
+    long bucket = bucketOf(aTime);
+    if ( bucket <= fNewest ) {
+      return;
+    }
+    // a negative gap has overflowed, so is larger than any window
+    long gap = bucket - fNewest;
+    if ( fNewest == NONE || gap < 0 || gap >= fBuckets.length ) {
+      clear();
+    }
+    else {
+      for(long b = fNewest + 1; b <= bucket; ++b){
+        UnscaledSum dropped = fBuckets[slotOf(b)];
+        fTotal.subtract(dropped);
+        dropped.reset();
+      }
+    }
+    fNewest = bucket;
+  }
+
+  /** Total of the window as it stands, after the last amount recorded or move. */
+  public Money getTotal(){
+    return Money.trusted(fTotal.toAmount(fDigits), fDescriptor, fRounding);
+  }
+
+  /** Total of the window once moved on to <tt>aTime</tt>, as by {@link #advanceTo}. */
+  public Money getTotal(long aTime){
+    advanceTo(aTime);
+    return getTotal();
+  }
+
+  /**
+  * Total of the bucket holding <tt>aTime</tt>; zero if that bucket is not in the
+  * window. The window is not moved.
+  */
+  public Money getBucketTotal(long aTime){
+    long bucket = bucketOf(aTime);
+    if ( ! inWindow(bucket) ) {
+      return Money.trusted(MinorUnits.toAmount(0, fDigits), fDescriptor, fRounding);
+    }
+    return Money.trusted(fBuckets[slotOf(bucket)].toAmount(fDigits), fDescriptor, fRounding);
+  }
+
+  /**
+  * Earliest time in the window, which is where the oldest bucket starts;
+  * <tt>Long.MIN_VALUE</tt> until the first amount or move.
+  */
+  public long getWindowStart(){
+    if ( fNewest == NONE ) {
+      return Long.MIN_VALUE;
+    }
+    long oldest = fNewest - fBuckets.length + 1;
+    // guards against overflow for windows near the ends of the time line
+    return oldest < Long.MIN_VALUE / fBucketWidth ? Long.MIN_VALUE : oldest * fBucketWidth;
+  }
+
+  /** Empty the window; the next amount or move sets its position again. */
+  public void reset(){
+    clear();
+    fNewest = NONE;
+  }
+
+  /** Return the currency passed to the constructor. */
+  public Currency getCurrency() { return fCurrency; }
+
+  /** Return the rounding style passed to the constructor. */
+  public RoundingMode getRoundingStyle() { return fRounding; }
+
+  /** Return the bucket width passed to the constructor. */
+  public long getBucketWidth() { return fBucketWidth; }
+
+  /** Return the bucket count passed to the constructor. */
+  public int getBucketCount() { return fBuckets.length; }
+
+  /** Returns the total, as in {@link #getTotal()}. */
+  public String toString(){
+    return getTotal().toString();
+  }
+
+  // PRIVATE //
+
+  private final Currency fCurrency;
+  private final RoundingMode fRounding;
+  private final CurrencyDescriptor fDescriptor;
+  private final int fDigits;
+  private final long fBucketWidth;
+
+  /** Ring of bucket sums; bucket <tt>b</tt> is at <tt>b mod length</tt>. */
+  private final UnscaledSum[] fBuckets;
+  /** Sum of the buckets in the window. */
+  private final UnscaledSum fTotal = new UnscaledSum();
+  /** Number of the newest bucket, counted from time 0; <tt>NONE</tt> while empty. */
+  private long fNewest = NONE;
+
+  private static final long NONE = Long.MIN_VALUE;
+
+  /** Bucket of <tt>aTime</tt>, moving the window on if needed; null if too late. */
+  private UnscaledSum bucketAt(long aTime){
+    long bucket = bucketOf(aTime);
+    if ( bucket > fNewest ) {
+      advanceTo(aTime);
+    }
+    else if ( ! inWindow(bucket) ) {
+      return null;
+    }
+    return fBuckets[slotOf(bucket)];
+  }
+
+  private boolean inWindow(long aBucket){
+    long age = fNewest - aBucket;
+    return fNewest != NONE && aBucket <= fNewest && age >= 0 && age < fBuckets.length;
+  }
+
+  /** Number of the bucket of <tt>aTime</tt>, rounding down for negative times. */
+  private long bucketOf(long aTime){
+    long result = aTime / fBucketWidth;
+    if ( aTime % fBucketWidth < 0 ) {
+      --result;
+    }
+    return result;
+  }
+
+  private int slotOf(long aBucket){
+    int result = (int)(aBucket % fBuckets.length);
+    return result < 0 ? result + fBuckets.length : result;
+  }
+
+  private void clear(){
+    for(UnscaledSum bucket : fBuckets){
+      bucket.reset();
+    }
+    fTotal.reset();
+  }
+}
@@ -0,0 +1,207 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.math.BigDecimal;
+
+/**
+* Sums arrays of {@link Money} in chunks, on an {@link ExecutorService}; the engine
+* behind {@link Money#parallelSum}.
+*
+* <P>Each chunk accumulates minor units in an {@link UnscaledSum}, along with the
+* largest scale it saw, so no <tt>Money</tt> or {@link BigDecimal} is created per
+* element. Partial sums are added up on the calling thread, which also sums the
+* last chunk itself.
+*/
+final class ParallelSum {
+
+  /** Below this many amounts, summing stays on the calling thread. */
+  static final int THRESHOLD = 8192;
+
+  /**
+  * Same result as {@link Money#sum}: the amount has the largest scale of the
+  * amounts summed (and at least 0), and the default rounding style.
+  */
+  static Money sum(Money[] aMoneys, Currency aCurrency, ExecutorService aExecutor){
+    if( aCurrency == null ) {
+      throw new IllegalArgumentException("Currency cannot be null");
+    }
+    CurrencyDescriptor descriptor = CurrencyDescriptor.of(aCurrency);
+    Chunk total;
+    if ( aMoneys.length < THRESHOLD ) {
+      total = new Chunk(aMoneys, 0, aMoneys.length, descriptor).call();
+    }
+    else {
+      total = sumInChunks(aMoneys, descriptor, aExecutor);
+    }
+    BigDecimal amount = total.fSum.toAmount(descriptor.getMinorUnitDigits()).setScale(total.fMaxScale);
+    return new Money(amount, aCurrency, Money.getDefaultRounding());
+  }
+
+  /**
+  * Shared pool of daemon threads, up to one per processor, created on first use.
+  * Threads idle for {@link #IDLE_SECONDS} end, so an unused pool holds no threads.
+  */
+  static ExecutorService defaultExecutor(){
+    ExecutorService result = DEFAULT_EXECUTOR;
+    if ( result == null ) {
+      synchronized(ParallelSum.class){
+        result = DEFAULT_EXECUTOR;
+        if ( result == null ) {
+          result = newDefaultExecutor();
+          DEFAULT_EXECUTOR = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Shut the shared pool down, if there is one; the next parallel sum creates a new one. */
+  static void shutdownDefaultExecutor(){
+    ExecutorService executor;
+    synchronized(ParallelSum.class){
+      executor = DEFAULT_EXECUTOR;
+      DEFAULT_EXECUTOR = null;
+    }
+    if ( executor != null ) {
+      executor.shutdown();
+    }
+  }
+
+  /** How long a thread of the shared pool waits for work before it ends. */
+  static final long IDLE_SECONDS = 60;
+
+  // PRIVATE //
+
+  private ParallelSum() {}
+
+  private static volatile ExecutorService DEFAULT_EXECUTOR;
+
+  private static ExecutorService newDefaultExecutor(){
+    int threads = Runtime.getRuntime().availableProcessors();
+    ThreadPoolExecutor result = new ThreadPoolExecutor(
+      threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactory() {
+        public Thread newThread(Runnable aTask) {
+          Thread result = new Thread(aTask, "javsy-money-sum");
+          result.setDaemon(true);
+          return result;
+        }
+      }
+    );
+    result.allowCoreThreadTimeOut(true);
+    return result;
+  }
+
+  /** Sum of one slice of the array; the currency is looked up once per chunk. */
+  private static final class Chunk implements Callable<Chunk> {
+    Chunk(Money[] aMoneys, int aFrom, int aTo, CurrencyDescriptor aDescriptor){
+      fMoneys = aMoneys;
+      fFrom = aFrom;
+      fTo = aTo;
+      fDescriptor = aDescriptor;
+      fDigits = aDescriptor.getMinorUnitDigits();
+    }
+
+    public Chunk call() {
+      for(int i = fFrom; i < fTo; ++i){
+        Money money = fMoneys[i];
+        CurrencyDescriptor.checkSame(fDescriptor, money.getDescriptor());
+        BigDecimal amount = money.getAmount();
+        if ( amount.scale() > fMaxScale ) {
+          fMaxScale = amount.scale();
+        }
+        fSum.add(amount, fDigits);
+      }
+      return this;
+    }
+
+    final UnscaledSum fSum = new UnscaledSum();
+    int fMaxScale;
+
+    private final Money[] fMoneys;
+    private final int fFrom;
+    private final int fTo;
+    private final CurrencyDescriptor fDescriptor;
+    private final int fDigits;
+  }
+
+  private static Chunk sumInChunks(Money[] aMoneys, CurrencyDescriptor aDescriptor, ExecutorService aExecutor){
+    int chunks = Math.min(
+      Runtime.getRuntime().availableProcessors() * 4,
+      aMoneys.length / (THRESHOLD / 2)
+    );
+    int chunkSize = (aMoneys.length + chunks - 1) / chunks;
+    List<Future<Chunk>> pending = new ArrayList<Future<Chunk>>(chunks);
+    List<Chunk> done = new ArrayList<Chunk>();
+    try {
+      int from = 0;
+      for(; from + chunkSize < aMoneys.length; from += chunkSize){
+        Chunk chunk = new Chunk(aMoneys, from, from + chunkSize, aDescriptor);
+        try {
+          pending.add(aExecutor.submit(chunk));
+        }
+        catch (RejectedExecutionException ex){
+          // such as when the shared pool is shut down meanwhile
+          done.add(chunk.call());
+        }
+      }
+      done.add(new Chunk(aMoneys, from, aMoneys.length, aDescriptor).call());
+      for(Future<Chunk> future : pending){
+        done.add(future.get());
+      }
+    }
+    catch (InterruptedException ex){
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while summing", ex);
+    }
+    catch (ExecutionException ex){
+      Throwable cause = ex.getCause();
+      if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException)cause;
+      }
+      if ( cause instanceof Error ) {
+        throw (Error)cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+    finally {
+      // do not leave work behind if one of the chunks failed
+      for(Future<Chunk> future : pending){
+        future.cancel(true);
+      }
+    }
+    Chunk total = done.get(0);
+    for(Chunk chunk : done.subList(1, done.size())){
+      total.fSum.add(chunk.fSum);
+      total.fMaxScale = Math.max(total.fMaxScale, chunk.fMaxScale);
+    }
+    return total;
+  }
+}
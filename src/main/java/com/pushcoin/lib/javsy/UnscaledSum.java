@@ -0,0 +1,153 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+* Mutable running total of unscaled amounts, such as minor units.
+*
+* <P>The total is kept in a <tt>long</tt>; whatever would overflow it is spilled into
+* a {@link BigInteger}, so only sums that actually exceed a <tt>long</tt> allocate.
+* Not thread-safe.
+*/
+final class UnscaledSum {
+
+  /** Add <tt>aValue</tt> to the total. */
+  void add(long aValue){
+    long sum = fSum + aValue;
+    if ( MinorUnits.addOverflows(fSum, aValue, sum) ) {
+      spill(BigInteger.valueOf(fSum).add(BigInteger.valueOf(aValue)));
+      return;
+    }
+    fSum = sum;
+  }
+
+  /** Subtract <tt>aValue</tt> from the total. */
+  void subtract(long aValue){
+    long difference = fSum - aValue;
+    if ( MinorUnits.subtractOverflows(fSum, aValue, difference) ) {
+      spill(BigInteger.valueOf(fSum).subtract(BigInteger.valueOf(aValue)));
+      return;
+    }
+    fSum = difference;
+  }
+
+  /** Add an unscaled amount of any size to the total. */
+  void add(BigInteger aValue){
+    if ( MinorUnits.fitsInLong(aValue) ) {
+      add(aValue.longValue());
+    }
+    else {
+      addSpill(aValue);
+    }
+  }
+
+  /**
+  * Add <tt>aAmount</tt>, in minor units of a currency with <tt>aDigits</tt> decimals.
+  * The scale of <tt>aAmount</tt> must not exceed <tt>aDigits</tt>.
+  */
+  void add(BigDecimal aAmount, int aDigits){
+    long minorUnits;
+    try {
+      minorUnits = MinorUnits.of(aAmount, aDigits);
+    }
+    catch (ArithmeticException ex){
+      add(aAmount.movePointRight(aDigits).toBigIntegerExact());
+      return;
+    }
+    add(minorUnits);
+  }
+
+  /** Add the total of <tt>aThat</tt> to this total; <tt>aThat</tt> is left as is. */
+  void add(UnscaledSum aThat){
+    add(aThat.fSum);
+    if ( aThat.fOverflow != null ) {
+      addSpill(aThat.fOverflow);
+    }
+  }
+
+  /** Subtract the total of <tt>aThat</tt> from this total; <tt>aThat</tt> is left as is. */
+  void subtract(UnscaledSum aThat){
+    subtract(aThat.fSum);
+    if ( aThat.fOverflow != null ) {
+      addSpill(aThat.fOverflow.negate());
+    }
+  }
+
+  /** Return <tt>true</tt> only if the total fits in a <tt>long</tt>. */
+  boolean isCompact(){
+    if ( fOverflow == null ) {
+      return true;
+    }
+    // the spilled part may have cancelled out
+    if ( MinorUnits.fitsInLong(fOverflow) ) {
+      long overflow = fOverflow.longValue();
+      long sum = fSum + overflow;
+      if ( ! MinorUnits.addOverflows(fSum, overflow, sum) ) {
+        fSum = sum;
+        fOverflow = null;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The total; only valid when {@link #isCompact()}. */
+  long longValue(){
+    return fSum;
+  }
+
+  BigInteger toBigInteger(){
+    BigInteger result = BigInteger.valueOf(fSum);
+    return fOverflow == null ? result : result.add(fOverflow);
+  }
+
+  /** The total as an amount with <tt>aScale</tt> decimals. */
+  BigDecimal toAmount(int aScale){
+    return isCompact() ? BigDecimal.valueOf(fSum, aScale) : new BigDecimal(toBigInteger(), aScale);
+  }
+
+  int signum(){
+    return isCompact() ? MinorUnits.compare(fSum, 0) : toBigInteger().signum();
+  }
+
+  void reset(){
+    fSum = 0;
+    fOverflow = null;
+  }
+
+  // PRIVATE //
+
+  private long fSum;
+
+  /** Amount not held by <tt>fSum</tt>, null until a sum overflows. */
+  private BigInteger fOverflow;
+
+  /** Move <tt>aTotal</tt>, which replaces the running total, into the overflow. */
+  private void spill(BigInteger aTotal){
+    fSum = 0;
+    addSpill(aTotal);
+  }
+
+  private void addSpill(BigInteger aValue){
+    fOverflow = (fOverflow == null) ? aValue : fOverflow.add(aValue);
+  }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+import com.pushcoin.lib.javsy.Binascii;
+import java.util.Random;
+
+/**
+	Rough throughput comparison of Binascii against the implementations
+	it replaced. Run with: java BenchBinascii [iterations]
+
+	MB/s is measured over binary (decoded) bytes, ns/op is per ID_SIZE bytes.
+	Add --add-modules jdk.incubator.vector and the javsy-vector classes to
+	see the blob cases with the vector codec.
+*/
+public final class BenchBinascii
+{
+	// 32-byte transaction IDs, as seen on the request-logging path
+	static final int ID_SIZE = 32;
+	static final int ID_COUNT = 1024;
+	static final int ROUNDS = 8;
+
+	public static void main( String[] args )
+	{
+		final int iterations = args.length > 0 ? Integer.parseInt( args[0] ) : 2000;
+
+		Random rnd = new Random( 42 );
+		final byte[][] raws = new byte[ID_COUNT][];
+		final String[] ids = new String[ID_COUNT];
+		for (int i = 0; i < ID_COUNT; ++i)
+		{
+			raws[i] = new byte[ID_SIZE];
+			rnd.nextBytes( raws[i] );
+			ids[i] = Binascii.hexlify( raws[i] );
+		}
+		final char[] scratch = new char[ID_SIZE * 2];
+
+		run( "hexlify, nibble loop", iterations, new Case() {
+			long pass() {
+				long sink = 0;
+				for (int i = 0; i < ID_COUNT; ++i) {
+					legacyHexlify( raws[i], scratch );
+					sink += scratch[i & 63];
+				}
+				return sink;
+			}
+		});
+
+		run( "hexlify, pair table", iterations, new Case() {
+			long pass() {
+				long sink = 0;
+				for (int i = 0; i < ID_COUNT; ++i) {
+					Binascii.hexlify( raws[i], 0, ID_SIZE, scratch, 0 );
+					sink += scratch[i & 63];
+				}
+				return sink;
+			}
+		});
+
+		// one blob as large as all IDs together, so that MB/s compare directly
+		final byte[] blob = new byte[ID_COUNT * ID_SIZE];
+		rnd.nextBytes( blob );
+		final byte[] blobAscii = new byte[blob.length * 2];
+		final byte[] blobDecoded = new byte[blob.length];
+		Binascii.hexlify( blob, 0, blob.length, blobAscii, 0 );
+
+		run( "hexlify, 32 KB blob", iterations, new Case() {
+			long pass() {
+				return Binascii.hexlify( blob, 0, blob.length, blobAscii, 0 ) + blobAscii[blob.length];
+			}
+		});
+
+		run( "unhexlify, 32 KB blob", iterations, new Case() {
+			long pass() {
+				return Binascii.unhexlify( blobAscii, 0, blobAscii.length, blobDecoded, 0 ) + blobDecoded[ID_SIZE];
+			}
+		});
+
+		run( "unhexlify, Character.digit", iterations, new Case() {
+			long pass() {
+				long sink = 0;
+				for (int i = 0; i < ID_COUNT; ++i) {
+					sink += legacyUnhexlify( ids[i] )[0];
+				}
+				return sink;
+			}
+		});
+
+		run( "unhexlify, strict digit", iterations, new Case() {
+			long pass() {
+				long sink = 0;
+				for (int i = 0; i < ID_COUNT; ++i) {
+					sink += strictLegacyUnhexlify( ids[i] )[0];
+				}
+				return sink;
+			}
+		});
+
+		run( "unhexlify, lookup table", iterations, new Case() {
+			long pass() {
+				long sink = 0;
+				for (int i = 0; i < ID_COUNT; ++i) {
+					sink += Binascii.unhexlify( ids[i] )[0];
+				}
+				return sink;
+			}
+		});
+	}
+
+	/** One pass over all IDs; returns a value the JIT cannot discard. */
+	static abstract class Case
+	{
+		abstract long pass();
+	}
+
+	/** Reports the best of several rounds, the first ones double as JIT warm-up. */
+	static void run( String name, int iterations, Case c )
+	{
+		long best = Long.MAX_VALUE;
+		long sink = 0;
+		for (int round = 0; round < ROUNDS; ++round)
+		{
+			long start = System.nanoTime();
+			for (int n = 0; n < iterations; ++n) {
+				sink += c.pass();
+			}
+			best = Math.min( best, System.nanoTime() - start );
+		}
+
+		long ops = (long) iterations * ID_COUNT;
+		double nsPerOp = (double) best / ops;
+		double mbPerSec = (ops * ID_SIZE) / (best / 1e9) / (1024 * 1024);
+		System.out.println( String.format( "%-32s %8.1f ns/op %8.1f MB/s (sink %d)", name, nsPerOp, mbPerSec, sink ) );
+	}
+
+	static final char legacyGlyph_[] = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
+
+	/** Binascii.hexlify as it was before the pair table, minus the StringBuilder. */
+	static void legacyHexlify(byte[] bytes, char[] hexAscii)
+	{
+		for (int i = 0, j = 0; i < bytes.length; ++i)
+		{
+			byte b = bytes[i];
+			hexAscii[j++] = legacyGlyph_[ (b & 0xf0) >> 4 ];
+			hexAscii[j++] = legacyGlyph_[ b & 0x0f ];
+		}
+	}
+
+	/** Binascii.unhexlify as it was before the lookup table. */
+	static byte[] legacyUnhexlify(String asciiHex)
+	{
+		int len = asciiHex.length();
+		byte[] data = new byte[len / 2];
+		for (int i = 0; i < len; i += 2)
+		{
+			data[i / 2] = (byte) ((Character.digit(asciiHex.charAt(i), 16) << 4) +
+				Character.digit(asciiHex.charAt(i+1), 16));
+		}
+		return data;
+	}
+
+	/**
+		legacyUnhexlify with the validation Binascii.unhexlify does, so
+		that the lookup table is compared on equal terms; Character.digit
+		alone does not reject anything.
+	*/
+	static byte[] strictLegacyUnhexlify(String asciiHex)
+	{
+		int len = asciiHex.length();
+		byte[] data = new byte[len / 2];
+		for (int i = 0; i < len; i += 2)
+		{
+			char c1 = asciiHex.charAt(i);
+			char c2 = asciiHex.charAt(i+1);
+			int hi = c1 < 0x80 ? Character.digit(c1, 16) : -1;
+			int lo = c2 < 0x80 ? Character.digit(c2, 16) : -1;
+			if ((hi | lo) < 0) {
+				throw new RuntimeException( "Input to unhexlify has invalid character at index " + (hi < 0 ? i : i+1) );
+			}
+			data[i / 2] = (byte) ((hi << 4) | lo);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,97 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+// 
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+import com.pushcoin.lib.javsy.Base16pcos;
+import java.util.Arrays;
+
+public final class TestBase16pcos
+{
+	static final byte[] rawbytes = {0x0, 0x1, (byte) 0xab, (byte) 0xff};
+
+	public static void main( String[] args ) 
+	{
+		try 
+		{
+			String printable = Base16pcos.encode( rawbytes );
+			System.out.println( printable );
+			check( "4445NPYY".equals( printable ), "encode" );
+
+			// quart order of the alphabet, as codes were always issued
+			byte[] quarts = { 0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xab, (byte) 0xcd, (byte) 0xef };
+			check( "457ACEFHKLNPRTXY".equals( Base16pcos.encode( quarts ) ), "encode alphabet order" );
+			check( Arrays.equals( quarts, Base16pcos.decode( "457ACEFHKLNPRTXY", false ) ), "decode alphabet order" );
+
+			// normalize folds case and drops anything outside the alphabet
+			check( "4445NPYY".equals( Base16pcos.normalize( "44-45 np-yy" ) ), "normalize" );
+			check( "ACEFHKLNPRTXY457".equals( Base16pcos.normalize( "acefhklnprtxy457 BDGIJMOQSUVWZ0123689" ) ), "normalize alphabet" );
+			check( "".equals( Base16pcos.normalize( "-- \u00e9\u212a" ) ), "normalize drops everything else" );
+			check( printable == Base16pcos.normalize( printable ), "normalize returns clean input as is" );
+			check( "4445NPYY".equals( Base16pcos.normalize( "4445npYy" ) ), "normalize folds case alone" );
+			check( "4445NPYY".equals( Base16pcos.normalize( "4445npYy-" ) ) && "NPYY".equals( Base16pcos.normalize( " npYy" ) ), "normalize drops first or last" );
+
+			// strict decoding takes the alphabet as is
+			check( Arrays.equals( rawbytes, Base16pcos.decode( printable, false ) ), "decode" );
+			try {
+				Base16pcos.decode( "4445nPYY", false );
+				check( false, "strict decode must reject lower-case" );
+			} catch (RuntimeException e) {
+				check( e.getMessage().indexOf( "at index 4" ) > 0, "strict decode reports offending index" );
+			}
+
+			// caller-supplied buffers
+			char[] chars = new char[10];
+			check( Base16pcos.encode( rawbytes, 2, 2, chars, 1 ) == 4, "encode char[] length" );
+			check( "NPYY".equals( new String( chars, 1, 4 ) ), "encode char[]" );
+
+			byte[] decoded = new byte[3];
+			check( Base16pcos.decode( "x45-NP", 1, 5, true, decoded, 1 ) == 2, "decode byte[] length" );
+			check( decoded[1] == 0x1 && decoded[2] == (byte) 0xab, "decode byte[]" );
+			try {
+				Base16pcos.decode( "4445NPYY", 0, 8, false, decoded, 0 );
+				check( false, "decode must reject a short dst" );
+			} catch (IndexOutOfBoundsException e) {
+				check( decoded[0] == 0 && decoded[1] == 0x1, "decode leaves a short dst untouched" );
+			}
+
+			// decoding with clean-up skips junk and folds case in one pass
+			check( Arrays.equals( rawbytes, Base16pcos.decode( "44-45 np-yy", true ) ), "decode with clean-up" );
+			check( Base16pcos.decode( "-- ", true ).length == 0, "decode with clean-up of no symbols" );
+			try {
+				Base16pcos.decode( "44-45 np-y", true );
+				check( false, "decode must reject an odd number of symbols" );
+			} catch (RuntimeException e) {
+				check( e.getMessage().startsWith( "Base16pcos decode input must" ), "decode odd number of symbols" );
+			}
+
+			System.exit(0);
+		} 
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			System.err.println( "Basic error: " + e );
+			System.exit(1);
+		}
+	}
+
+	static void check( boolean condition, String what )
+	{
+		if (! condition) {
+			throw new RuntimeException( "Check failed: " + what );
+		}
+	}
+}
@@ -17,6 +17,22 @@
 // __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
 
 import com.pushcoin.lib.javsy.Binascii;
+import com.pushcoin.lib.javsy.HexDecodingInputStream;
+import com.pushcoin.lib.javsy.HexEncodingOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
 
 public final class TestBinascii
 {
@@ -31,6 +47,101 @@ public final class TestBinascii
 		try 
 		{
 			System.out.println( Binascii.hexlify( rawbytes ) );
+			check( "0a02ff".equals( Binascii.hexlify( rawbytes ) ), "hexlify" );
+
+			// encoding into caller-supplied buffers
+			char[] chars = new char[8];
+			check( Binascii.hexlify( rawbytes, 1, 2, chars, 1 ) == 4, "hexlify char[] length" );
+			check( "02ff".equals( new String( chars, 1, 4 ) ), "hexlify char[]" );
+
+			byte[] ascii = new byte[6];
+			check( Binascii.hexlify( rawbytes, 0, 3, ascii, 0 ) == 6, "hexlify byte[] length" );
+			check( "0a02ff".equals( new String( ascii, "US-ASCII" ) ), "hexlify byte[]" );
+
+			try {
+				Binascii.hexlify( rawbytes, 0, 3, chars, 3 );
+				check( false, "hexlify must reject short output buffer" );
+			} catch (IndexOutOfBoundsException e) { }
+
+			// decoding
+			check( Arrays.equals( rawbytes, Binascii.unhexlify( "0a02ff" ) ), "unhexlify" );
+			check( Arrays.equals( rawbytes, Binascii.unhexlify( "0A02FF" ) ), "unhexlify upper-case" );
+
+			byte[] decoded = new byte[4];
+			check( Binascii.unhexlify( "xx0a02ff", 2, 6, decoded, 1 ) == 3, "unhexlify byte[] length" );
+			check( decoded[1] == 0xa && decoded[2] == 0x2 && decoded[3] == (byte) 0xff, "unhexlify byte[]" );
+
+			try {
+				Binascii.unhexlify( "0a0g" );
+				check( false, "unhexlify must reject non-hex input" );
+			} catch (RuntimeException e) {
+				check( e.getMessage().endsWith( "at index 3" ), "unhexlify reports offending index" );
+			}
+
+			// heap and direct NIO buffers
+			ByteBuffer direct = ByteBuffer.allocateDirect( 8 );
+			check( Binascii.hexlify( ByteBuffer.wrap( rawbytes ), direct ) == 6, "hexlify direct buffer length" );
+			check( direct.position() == 6, "hexlify advances destination" );
+			direct.flip();
+			byte[] directAscii = new byte[6];
+			direct.get( directAscii );
+			check( "0a02ff".equals( new String( directAscii, "US-ASCII" ) ), "hexlify direct buffer" );
+
+			ByteBuffer slice = ByteBuffer.wrap( rawbytes, 1, 2 );
+			CharBuffer hexChars = CharBuffer.allocate( 4 );
+			Binascii.hexlify( slice, hexChars );
+			check( ! slice.hasRemaining(), "hexlify consumes source" );
+			check( "02ff".equals( hexChars.flip().toString() ), "hexlify char buffer" );
+
+			ByteBuffer decodedDirect = ByteBuffer.allocateDirect( 3 );
+			check( Binascii.unhexlify( "0a02ff", decodedDirect ) == 3, "unhexlify direct buffer length" );
+			check( decodedDirect.get(0) == 0xa && decodedDirect.get(2) == (byte) 0xff, "unhexlify direct buffer" );
+
+			ByteBuffer decodedHeap = ByteBuffer.allocate( 4 );
+			decodedHeap.position( 1 );
+			Binascii.unhexlify( CharBuffer.wrap( "0a02ff" ), decodedHeap );
+			check( decodedHeap.position() == 4 && decodedHeap.get(3) == (byte) 0xff, "unhexlify heap buffer" );
+
+			// streaming, with a chunk size that does not divide the payload
+			byte[] payload = new byte[10000];
+			new Random( 7 ).nextBytes( payload );
+
+			ByteArrayOutputStream asciiOut = new ByteArrayOutputStream();
+			OutputStream encoder = new HexEncodingOutputStream( asciiOut, 64 );
+			encoder.write( payload, 0, 100 );
+			encoder.write( payload[100] );
+			encoder.write( payload, 101, payload.length - 101 );
+			encoder.close();
+			check( Binascii.hexlify( payload ).equals( asciiOut.toString( "US-ASCII" ) ), "HexEncodingOutputStream" );
+
+			StringWriter charOut = new StringWriter();
+			encoder = new HexEncodingOutputStream( charOut, 33 );
+			encoder.write( payload );
+			encoder.close();
+			check( Binascii.hexlify( payload ).equals( charOut.toString() ), "HexEncodingOutputStream to Writer" );
+
+			check( Arrays.equals( payload, readFully( new HexDecodingInputStream( new ByteArrayInputStream( asciiOut.toByteArray() ), 50 ) ) ), "HexDecodingInputStream" );
+			check( Arrays.equals( payload, readFully( new HexDecodingInputStream( new StringReader( charOut.toString() ), 7 ) ) ), "HexDecodingInputStream from Reader" );
+			// a source that returns odd numbers of digits leaves half pairs behind
+			Reader threeAtATime = new FilterReader( new StringReader( charOut.toString() ) ) {
+				@Override
+				public int read( char[] cbuf, int off, int len ) throws IOException {
+					return super.read( cbuf, off, Math.min( len, 3 ) );
+				}
+			};
+			InputStream decoder = new HexDecodingInputStream( threeAtATime, 64 );
+			ByteArrayOutputStream bytewise = new ByteArrayOutputStream();
+			for (int i = 0; i < 300; ++i) {
+				bytewise.write( decoder.read() );
+			}
+			bytewise.write( readFully( decoder ) );
+			check( Arrays.equals( payload, bytewise.toByteArray() ), "HexDecodingInputStream, byte at a time" );
+
+			try {
+				readFully( new HexDecodingInputStream( new StringReader( "0a0" ) ) );
+				check( false, "HexDecodingInputStream must reject a dangling digit" );
+			} catch (EOFException e) { }
+
 /*
 			final byte[] input = testWriteDatatypes();
 			StringBuilder sb = new StringBuilder();
@@ -49,6 +160,25 @@ public final class TestBinascii
 		{
 			e.printStackTrace();
 			System.err.println( "Basic error: " + e );
+			System.exit(1);
+		}
+	}
+
+	static byte[] readFully( InputStream in ) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[123];
+		for (int n; (n = in.read( buf )) >= 0; ) {
+			out.write( buf, 0, n );
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	static void check( boolean condition, String what )
+	{
+		if (! condition) {
+			throw new RuntimeException( "Check failed: " + what );
 		}
 	}
 }
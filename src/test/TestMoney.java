@@ -0,0 +1,937 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+import com.pushcoin.lib.javsy.CurrencyConverter;
+import com.pushcoin.lib.javsy.ExchangeRateProvider;
+import com.pushcoin.lib.javsy.FastMoney;
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyAccumulator;
+import com.pushcoin.lib.javsy.MoneyAdder;
+import com.pushcoin.lib.javsy.MoneyBag;
+import com.pushcoin.lib.javsy.MoneyCodec;
+import com.pushcoin.lib.javsy.MoneyColumn;
+import com.pushcoin.lib.javsy.MoneyFormat;
+import com.pushcoin.lib.javsy.MoneySummaryStatistics;
+import com.pushcoin.lib.javsy.MoneyWindow;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class TestMoney
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+	static final Currency EUR = Currency.getInstance( "EUR" );
+	static final Currency JPY = Currency.getInstance( "JPY" );
+
+	public static void main( String[] args )
+	{
+		try
+		{
+			Money.init( USD, RoundingMode.HALF_EVEN );
+
+			testFastMoney();
+			testMoneyColumn();
+			testParallelSum();
+			testMoneyBag();
+			testMoneySummaryStatistics();
+			testMoneyOf();
+			testSharedCurrencyMetadata();
+			testTimesDouble();
+			testMoneyCodec();
+			testMoneyFormat();
+			testMoneyAccumulator();
+			testMoneyAdder();
+			testAllocate();
+			testCurrencyConverter();
+			testMoneyWindow();
+
+			System.exit(0);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			System.err.println( "Basic error: " + e );
+			System.exit(1);
+		}
+	}
+
+	static void testFastMoney()
+	{
+		FastMoney a = new FastMoney( 1050, USD );
+		FastMoney b = FastMoney.valueOf( new BigDecimal( "2.5" ), USD, RoundingMode.HALF_EVEN );
+		check( b.getMinorUnits() == 250, "valueOf scales to minor units" );
+		check( "13.00".equals( a.plus( b ).getAmount().toPlainString() ), "plus" );
+		check( a.minus( b ).getMinorUnits() == 800, "minus" );
+		check( a.gt( b ) && b.lteq( a ) && ! a.eq( b ), "comparisons" );
+		check( a.equals( FastMoney.of( new Money( new BigDecimal( "10.5" ), USD ) ) ), "of(Money) is scale-insensitive" );
+
+		// integral and non-integral factors round the way Money does
+		Money m = new Money( new BigDecimal( "10.05" ), USD, RoundingMode.HALF_UP );
+		FastMoney f = FastMoney.of( m );
+		int[] divisors = { 1, 2, 3, 7, -3, -4 };
+		double[] factors = { 0.5, 1.175, -2.333, 1e-3 };
+		for (RoundingMode rounding : RoundingMode.values())
+		{
+			if (rounding == RoundingMode.UNNECESSARY) {
+				continue;
+			}
+			Money mr = new Money( m.getAmount(), USD, rounding );
+			FastMoney fr = FastMoney.of( mr );
+			for (int d : divisors) {
+				check( mr.div( d ).getAmount().compareTo( fr.div( d ).getAmount() ) == 0, "div(int) " + rounding + " " + d );
+				check( mr.negate().div( d ).getAmount().compareTo( fr.negate().div( d ).getAmount() ) == 0, "negative div(int) " + rounding + " " + d );
+			}
+			for (double x : factors) {
+				check( mr.times( x ).getAmount().compareTo( fr.times( x ).getAmount() ) == 0, "times(double) " + rounding + " " + x );
+				check( mr.div( x ).getAmount().compareTo( fr.div( x ).getAmount() ) == 0, "div(double) " + rounding + " " + x );
+			}
+		}
+		check( f.times( 3 ).toMoney().equals( new Money( new BigDecimal( "30.15" ), USD, RoundingMode.HALF_UP ) ), "times(int), toMoney" );
+
+		// overflow promotes to BigDecimal, and comes back once the amount fits
+		FastMoney max = new FastMoney( Long.MAX_VALUE, USD );
+		FastMoney big = max.plus( new FastMoney( 1, USD ) );
+		check( ! big.isCompact(), "overflow promotes" );
+		check( big.getAmount().equals( new BigDecimal( "92233720368547758.08" ) ), "promoted amount" );
+		check( big.gt( max ) && big.compareTo( max ) > 0, "promoted comparisons" );
+		check( big.minus( new FastMoney( 1, USD ) ).equals( max ), "back to compact" );
+		check( ! max.times( 2 ).isCompact() && max.times( 2 ).div( 2 ).equals( max ), "times(int) overflow" );
+		check( ! new FastMoney( Long.MIN_VALUE, USD ).negate().isCompact(), "negate overflow" );
+		try {
+			big.getMinorUnits();
+			check( false, "getMinorUnits must reject promoted amounts" );
+		} catch (ArithmeticException e) { }
+
+		List<FastMoney> moneys = new ArrayList<FastMoney>();
+		moneys.add( max );
+		moneys.add( max );
+		moneys.add( new FastMoney( -5, USD ) );
+		moneys.add( a );
+		check( FastMoney.sum( moneys, USD ).getAmount().equals(
+			FastMoney.of( Money.sum( Arrays.asList( max.toMoney(), max.toMoney(), new Money( new BigDecimal( "-0.05" ) ), a.toMoney() ), USD ) ).getAmount() ),
+			"sum with overflow" );
+		check( FastMoney.sum( new ArrayList<FastMoney>(), JPY ).equals( new FastMoney( 0, JPY ) ), "sum of nothing" );
+
+		try {
+			a.plus( new FastMoney( 1, EUR ) );
+			check( false, "plus must reject mismatched currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+		try {
+			FastMoney.valueOf( new BigDecimal( "1.5" ), JPY, RoundingMode.HALF_EVEN );
+			check( false, "valueOf must reject extra decimals" );
+		} catch (IllegalArgumentException e) { }
+		try {
+			new FastMoney( 1, Currency.getInstance( "XAU" ) );
+			check( false, "currencies without minor units are rejected" );
+		} catch (IllegalArgumentException e) { }
+	}
+
+	static void testMoneyColumn()
+	{
+		MoneyColumn column = new MoneyColumn( USD, RoundingMode.HALF_EVEN );
+		List<Money> moneys = new ArrayList<Money>();
+		for (int i = 0; i < 100; ++i)
+		{
+			Money m = new Money( BigDecimal.valueOf( i * 37 - 1200, i % 3 ), USD, RoundingMode.HALF_EVEN );
+			moneys.add( m );
+			column.add( m );
+		}
+		check( column.size() == 100, "column size" );
+		check( column.sum().eq( Money.sum( moneys, USD ) ), "column sum" );
+		check( column.min().eq( Collections.min( moneys ) ), "column min" );
+		check( column.max().eq( Collections.max( moneys ) ), "column max" );
+		check( column.mean().eq( Money.sum( moneys, USD ).div( moneys.size() ) ), "column mean" );
+		check( MoneyColumn.of( moneys, USD, RoundingMode.HALF_EVEN ).sum().equals( column.sum() ), "column of" );
+		check( column.get( 1 ).equals( new Money( new BigDecimal( "-116.30" ), USD, RoundingMode.HALF_EVEN ) ), "column get" );
+
+		MoneyColumn positive = column.filter( new MoneyColumn.AmountFilter() {
+			public boolean accept( long minorUnits ) { return minorUnits > 0; }
+		} );
+		Money expected = new Money( BigDecimal.ZERO, USD, RoundingMode.HALF_EVEN );
+		for (Money m : moneys) {
+			if (m.isPlus()) {
+				expected = expected.plus( m );
+			}
+		}
+		check( positive.sum().eq( expected ) && positive.min().isPlus(), "column filter" );
+
+		int[] groups = new int[column.size()];
+		for (int i = 0; i < groups.length; ++i) {
+			groups[i] = i % 4;
+		}
+		Money[] sums = column.sumByGroup( groups, 5 );
+		check( sums[0].plus( sums[1] ).plus( sums[2] ).plus( sums[3] ).eq( column.sum() ), "column groups add up" );
+		check( sums[4].isZero(), "empty group" );
+
+		// totals beyond a long carry on exactly
+		MoneyColumn huge = new MoneyColumn( new long[] { Long.MAX_VALUE, Long.MAX_VALUE, 1, Long.MIN_VALUE }, USD, RoundingMode.HALF_EVEN );
+		check( huge.sum().getAmount().equals( new BigDecimal( "92233720368547758.07" ) ), "column sum overflow" );
+		check( huge.sumByGroup( new int[] { 0, 0, 0, 1 }, 2 )[0].getAmount().equals( new BigDecimal( "184467440737095516.15" ) ), "group sum overflow" );
+		check( huge.mean().getAmount().equals( new BigDecimal( "23058430092136939.52" ) ), "column mean overflow" );
+
+		try {
+			column.add( new Money( BigDecimal.ONE, EUR ) );
+			check( false, "column must reject mismatched currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+		try {
+			new MoneyColumn( JPY, RoundingMode.HALF_EVEN ).min();
+			check( false, "min of an empty column" );
+		} catch (NoSuchElementException e) { }
+	}
+
+	static void testParallelSum()
+	{
+		// mixed scales, including whole thousands; large enough to be split up
+		Random rnd = new Random( 7 );
+		List<Money> moneys = new ArrayList<Money>();
+		for (int i = 0; i < 50000; ++i) {
+			moneys.add( new Money( BigDecimal.valueOf( rnd.nextInt( 2000000 ) - 1000000, rnd.nextInt( 4 ) - 1 ), USD ) );
+		}
+		check( Money.parallelSum( moneys, USD ).equals( Money.sum( moneys, USD ) ), "parallel sum" );
+		List<Money> few = moneys.subList( 0, 100 );
+		check( Money.parallelSum( few.toArray( new Money[0] ), USD ).equals( Money.sum( few, USD ) ), "parallel sum, sequential" );
+		check( Money.parallelSum( new ArrayList<Money>(), EUR ).equals( Money.sum( new ArrayList<Money>(), EUR ) ), "parallel sum of nothing" );
+		Money.shutdownParallelSum();
+		check( Money.parallelSum( moneys, USD ).equals( Money.sum( moneys, USD ) ), "parallel sum after shutdown" );
+		ExecutorService stopped = Executors.newSingleThreadExecutor();
+		stopped.shutdown();
+		check( Money.parallelSum( moneys, USD, stopped ).equals( Money.sum( moneys, USD ) ), "parallel sum on a stopped executor" );
+
+		moneys.set( 30000, new Money( BigDecimal.ONE, EUR ) );
+		try {
+			Money.parallelSum( moneys, USD );
+			check( false, "parallel sum must reject mismatched currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+	}
+
+	static void testMoneyBag()
+	{
+		Currency[] currencies = { USD, EUR, JPY, Currency.getInstance( "GBP" ), Currency.getInstance( "CHF" ), Currency.getInstance( "BHD" ) };
+		Map<Currency, List<Money>> grouped = new HashMap<Currency, List<Money>>();
+		MoneyBag bag = new MoneyBag();
+		MoneyBag odd = new MoneyBag();
+		MoneyBag even = new MoneyBag();
+		Random rnd = new Random( 11 );
+		for (int i = 0; i < 1000; ++i)
+		{
+			Currency currency = currencies[rnd.nextInt( currencies.length )];
+			Money m = new Money( BigDecimal.valueOf( rnd.nextInt( 100000 ) - 50000, rnd.nextInt( currency.getDefaultFractionDigits() + 1 ) ), currency );
+			if (! grouped.containsKey( currency )) {
+				grouped.put( currency, new ArrayList<Money>() );
+			}
+			grouped.get( currency ).add( m );
+			bag.add( m );
+			(i % 2 == 0 ? even : odd).add( m );
+		}
+		even.merge( odd );
+		check( bag.size() == currencies.length && even.size() == currencies.length, "bag size" );
+		for (Currency currency : currencies)
+		{
+			Money expected = Money.sum( grouped.get( currency ), currency );
+			check( bag.get( currency ).equals( expected ), "bag total " + currency );
+			check( even.get( currency ).equals( expected ), "merged bag total " + currency );
+		}
+		check( bag.toMap().keySet().equals( grouped.keySet() ), "bag map" );
+		check( new MoneyBag().get( EUR ).equals( Money.sum( new ArrayList<Money>(), EUR ) ), "empty bag total" );
+
+		// totals beyond a long carry on exactly
+		MoneyBag huge = new MoneyBag();
+		Money max = new Money( new BigDecimal( "92233720368547758.07" ), USD );
+		huge.add( max );
+		huge.add( max );
+		huge.add( new Money( BigDecimal.ONE, EUR ) );
+		check( huge.get( USD ).equals( max.plus( max ) ), "bag overflow" );
+	}
+
+	static void testMoneySummaryStatistics()
+	{
+		List<Money> moneys = new ArrayList<Money>();
+		MoneySummaryStatistics all = new MoneySummaryStatistics( EUR );
+		MoneySummaryStatistics first = new MoneySummaryStatistics( EUR );
+		MoneySummaryStatistics second = new MoneySummaryStatistics( EUR );
+		Random rnd = new Random( 3 );
+		for (int i = 0; i < 500; ++i)
+		{
+			Money m = new Money( BigDecimal.valueOf( rnd.nextInt( 100000 ) - 50000, rnd.nextInt( 3 ) ), EUR );
+			moneys.add( m );
+			all.accept( m );
+			(i < 200 ? first : second).accept( m );
+		}
+		first.combine( second );
+		first.combine( new MoneySummaryStatistics( EUR ) );
+		Money sum = Money.sum( moneys, EUR );
+		for (MoneySummaryStatistics stats : Arrays.asList( all, first ))
+		{
+			check( stats.getCount() == 500, "statistics count" );
+			check( stats.getSum().equals( sum ), "statistics sum" );
+			check( stats.getAverage().equals( sum.div( 500 ) ), "statistics average" );
+			check( stats.getMin().eq( Collections.min( moneys ) ), "statistics min" );
+			check( stats.getMax().eq( Collections.max( moneys ) ), "statistics max" );
+		}
+
+		MoneySummaryStatistics none = new MoneySummaryStatistics( EUR );
+		check( none.getSum().isZero() && none.getAverage().isZero(), "statistics of nothing" );
+		try {
+			none.getMin();
+			check( false, "min of nothing" );
+		} catch (NoSuchElementException e) { }
+		try {
+			none.accept( new Money( BigDecimal.ONE, USD ) );
+			check( false, "statistics must reject mismatched currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+	}
+
+	static void testMoneyOf()
+	{
+		Money five = Money.of( 500, USD );
+		check( five.equals( new Money( new BigDecimal( "5.00" ), USD, RoundingMode.HALF_EVEN ) ), "of" );
+		check( five == Money.of( 500, USD ), "of shares small amounts" );
+		check( Money.of( 1001, USD ) != Money.of( 1001, USD ), "of shares only small amounts" );
+		check( Money.of( 500, JPY ).getAmount().equals( new BigDecimal( "500" ) ), "of without decimals" );
+		check( Money.of( 500, USD, RoundingMode.HALF_EVEN ) == five, "of with the default rounding" );
+		check( Money.of( 500, USD, RoundingMode.HALF_UP ).getRoundingStyle() == RoundingMode.HALF_UP, "of with another rounding" );
+		check( Money.of( -500, USD ).equals( five.negate() ) && Money.of( -500, USD ) != Money.of( -500, USD ), "of negative" );
+		check( Money.of( 12345678901L, USD ).getAmount().equals( new BigDecimal( "123456789.01" ) ), "of large" );
+
+		// a new default rounding style replaces the shared instance
+		Money.init( USD, RoundingMode.HALF_UP );
+		check( Money.of( 500, USD ).getRoundingStyle() == RoundingMode.HALF_UP, "of after init" );
+		Money.init( USD, RoundingMode.HALF_EVEN );
+		check( Money.of( 500, USD ).getRoundingStyle() == RoundingMode.HALF_EVEN, "of after init again" );
+
+		try {
+			Money.of( 1, Currency.getInstance( "XAU" ) );
+			check( false, "of must reject currencies without minor units" );
+		} catch (IllegalArgumentException e) { }
+	}
+
+	static void testSharedCurrencyMetadata() throws Exception
+	{
+		// de-serialized amounts get their currency metadata back
+		Money m = new Money( new BigDecimal( "12.34" ), USD );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( m );
+		out.writeObject( FastMoney.of( m ) );
+		out.close();
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+		Money copy = (Money) in.readObject();
+		FastMoney fastCopy = (FastMoney) in.readObject();
+		check( copy.equals( m ) && copy.isSameCurrencyAs( m ), "de-serialized Money" );
+		check( copy.plus( m ).equals( m.times( 2 ) ), "de-serialized Money arithmetic" );
+		check( fastCopy.plus( FastMoney.of( m ) ).getMinorUnits() == 2468, "de-serialized FastMoney arithmetic" );
+		try {
+			copy.plus( new Money( BigDecimal.ONE, EUR ) );
+			check( false, "de-serialized Money must reject other currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+
+		// a bag holding more currencies than its initial capacity
+		String[] codes = { "USD", "EUR", "JPY", "GBP", "CHF", "PLN", "KWD" };
+		MoneyBag bag = new MoneyBag();
+		for (int round = 0; round < 3; ++round) {
+			for (String code : codes) {
+				bag.add( Money.of( 100, Currency.getInstance( code ) ) );
+			}
+		}
+		check( bag.size() == codes.length, "bag size" );
+		for (int i = 0; i < codes.length; ++i) {
+			Currency currency = Currency.getInstance( codes[i] );
+			check( bag.getCurrencies().get( i ) == currency, "bag order " + codes[i] );
+			check( bag.get( currency ).equals( Money.of( 300, currency ) ), "bag total " + codes[i] );
+		}
+		check( bag.get( Currency.getInstance( "CAD" ) ).getAmount().signum() == 0, "bag total of a currency never added" );
+	}
+
+	static void testTimesDouble()
+	{
+		// same results as converting the double through its String, as times(double) used to
+		Random rnd = new Random( 18 );
+		List<Double> factors = new ArrayList<Double>( Arrays.asList( 0.0, -0.0, 1.0, -1.0, 0.1, 0.0725, 1.175, 1e-3, 1e-9, 1e-10, 123456.789, 999999999999999.0, 1e15, 1e16, 1e300, Double.MIN_VALUE, 1.0 / 3, Math.PI ) );
+		for (int i = 0; i < 20000; ++i)
+		{
+			// short decimals, as rates and fees usually are, and arbitrary doubles
+			double decimal = (rnd.nextInt( 2000000001 ) - 1000000000) / Math.pow( 10, rnd.nextInt( 13 ) );
+			factors.add( decimal );
+			factors.add( rnd.nextDouble() * Math.pow( 10, rnd.nextInt( 21 ) - 10 ) );
+		}
+		RoundingMode[] roundings = { RoundingMode.HALF_EVEN, RoundingMode.HALF_UP, RoundingMode.FLOOR, RoundingMode.UP };
+		for (int i = 0; i < factors.size(); ++i)
+		{
+			double x = factors.get( i );
+			RoundingMode rounding = roundings[i % roundings.length];
+			Money m = new Money( BigDecimal.valueOf( rnd.nextInt( 2000000 ) - 1000000, 2 ), USD, rounding );
+			FastMoney f = FastMoney.of( m );
+			BigDecimal asString = new BigDecimal( Double.toString( x ) );
+			BigDecimal product = m.getAmount().multiply( asString ).setScale( 2, rounding );
+			check( m.times( x ).getAmount().equals( product ), "times(double) " + x );
+			check( f.times( x ).getAmount().equals( product ), "FastMoney times(double) " + x );
+			check( m.times( asString ).getAmount().equals( product ), "times(BigDecimal) " + x );
+			if (asString.signum() != 0 && asString.abs().compareTo( new BigDecimal( "1e-20" ) ) > 0) {
+				BigDecimal quotient = m.getAmount().divide( asString, rounding );
+				check( m.div( x ).getAmount().equals( quotient ), "div(double) " + x );
+				check( f.div( x ).getAmount().equals( quotient ), "FastMoney div(double) " + x );
+			}
+		}
+		Money price = new Money( new BigDecimal( "1234.56" ), USD );
+		check( price.times( 725, 4 ).equals( price.times( 0.0725 ) ) && "89.51".equals( price.times( 725, 4 ).getAmount().toPlainString() ), "times(long, int)" );
+		check( price.times( 3, -2 ).getAmount().equals( new BigDecimal( "370368.00" ) ), "times(long, int) by hundreds" );
+		try {
+			price.div( 0.0 );
+			check( false, "div(double) must reject zero" );
+		} catch (ArithmeticException e) { }
+		try {
+			FastMoney.of( price ).div( 0.0 );
+			check( false, "FastMoney div(double) must reject zero" );
+		} catch (ArithmeticException e) { }
+	}
+
+	static void testMoneyCodec() throws Exception
+	{
+		List<Money> moneys = new ArrayList<Money>( Arrays.asList(
+			new Money( new BigDecimal( "12.34" ), USD ),
+			new Money( new BigDecimal( "-0.5" ), EUR, RoundingMode.HALF_UP ),
+			new Money( new BigDecimal( "1E+3" ), JPY, RoundingMode.CEILING ),
+			new Money( new BigDecimal( "7.125" ), Currency.getInstance( "KWD" ), RoundingMode.FLOOR ),
+			new Money( new BigDecimal( "922337203685477580.7" ), USD ),
+			new Money( new BigDecimal( "-98765432109876543210987654321.09" ), USD, RoundingMode.DOWN ),
+			new Money( new BigDecimal( "1E+3" ), Currency.getInstance( "XAU" ), RoundingMode.UP ),
+			new Money( BigDecimal.ZERO, Currency.getInstance( "ZWL" ), null )
+		) );
+		Random rnd = new Random( 19 );
+		for (int i = 0; i < 1000; ++i) {
+			moneys.add( new Money( BigDecimal.valueOf( rnd.nextLong() >> rnd.nextInt( 64 ), rnd.nextInt( 3 ) ), USD, RoundingMode.values()[rnd.nextInt( 8 )] ) );
+		}
+
+		// the byte order of the buffer must not matter
+		ByteBuffer buffer = ByteBuffer.allocate( 64 * 1024 ).order( ByteOrder.LITTLE_ENDIAN );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream( bytes );
+		for (Money m : moneys) {
+			MoneyCodec.write( m, buffer );
+			MoneyCodec.write( m, out );
+		}
+		out.close();
+		buffer.flip();
+		check( Arrays.equals( Arrays.copyOf( buffer.array(), buffer.limit() ), bytes.toByteArray() ), "ByteBuffer and DataOutput bytes agree" );
+		DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) );
+		for (Money m : moneys) {
+			Money fromBuffer = MoneyCodec.read( buffer );
+			Money fromStream = MoneyCodec.read( in );
+			check( m.equals( fromBuffer ) && m.getAmount().scale() == fromBuffer.getAmount().scale(), "round-trip through ByteBuffer " + m );
+			check( m.equals( fromStream ) && fromStream.isSameCurrencyAs( m ), "round-trip through DataInput " + m );
+		}
+		check( ! buffer.hasRemaining() && in.read() < 0, "all read" );
+
+		buffer.clear();
+		MoneyCodec.write( moneys.get( 0 ), buffer );
+		check( buffer.position() == 6, "12.34 USD in 6 bytes" );
+		buffer.clear();
+		MoneyCodec.write( new Money( BigDecimal.valueOf( Long.MIN_VALUE, 2 ), USD ), buffer );
+		check( buffer.position() <= MoneyCodec.MAX_COMPACT_SIZE, "compact size" );
+
+		// truncated and corrupt input
+		byte[] encoded = new byte[6];
+		buffer.flip();
+		MoneyCodec.write( moneys.get( 0 ), ByteBuffer.wrap( encoded ) );
+		try {
+			MoneyCodec.read( ByteBuffer.wrap( encoded, 0, 5 ) );
+			check( false, "read must reject a truncated buffer" );
+		} catch (BufferUnderflowException e) { }
+		try {
+			MoneyCodec.read( new DataInputStream( new ByteArrayInputStream( encoded, 0, 5 ) ) );
+			check( false, "read must reject a truncated stream" );
+		} catch (EOFException e) { }
+		byte[][] corrupt = {
+			{ (byte)0x00, 0x00, 0x06, 0x04, 0x02 },                 // no currency
+			{ (byte)0x7F, (byte)0xFF, 0x06, 0x04, 0x02 },           // letters past Z
+			{ 0x05, 0x41, 0x06, 0x04, 0x02 },                       // AJA, no such currency
+			{ encoded[0], encoded[1], 0x08, 0x04, 0x02 },           // rounding ordinal 8
+			{ encoded[0], encoded[1], 0x46, 0x04, 0x02 },           // unknown header bit
+			{ encoded[0], encoded[1], 0x06, 0x06, 0x02 },           // 3 decimals for USD
+			{ encoded[0], encoded[1], (byte)0x86, 0x04, 0x00 },     // big amount of no bytes
+		};
+		for (int i = 0; i < corrupt.length; ++i) {
+			try {
+				MoneyCodec.read( ByteBuffer.wrap( corrupt[i] ) );
+				check( false, "read must reject corrupt input " + i );
+			} catch (IllegalArgumentException e) { }
+		}
+	}
+
+	static void testMoneyFormat() throws Exception
+	{
+		List<Money> moneys = new ArrayList<Money>( Arrays.asList(
+			new Money( new BigDecimal( "12.30" ), USD ),
+			new Money( new BigDecimal( "-0.05" ), EUR, RoundingMode.HALF_UP ),
+			new Money( new BigDecimal( "1E+3" ), JPY ),
+			new Money( new BigDecimal( "0E+3" ), JPY ),
+			new Money( BigDecimal.valueOf( Long.MIN_VALUE, 2 ), USD ),
+			new Money( BigDecimal.valueOf( Long.MAX_VALUE, 3 ), Currency.getInstance( "KWD" ) ),
+			new Money( new BigDecimal( "-98765432109876543210987654321.09" ), USD )
+		) );
+		Random rnd = new Random( 20 );
+		for (int i = 0; i < 5000; ++i) {
+			moneys.add( new Money( BigDecimal.valueOf( rnd.nextLong() >> rnd.nextInt( 64 ), rnd.nextInt( 3 ) ), USD ) );
+			moneys.add( new Money( BigDecimal.valueOf( rnd.nextInt(), -rnd.nextInt( 3 ) ), JPY ) );
+		}
+		char[] chars = new char[64];
+		for (Money m : moneys)
+		{
+			String expected = m.getAmount().toPlainString() + " " + m.getCurrency().getCurrencyCode();
+			String text = MoneyFormat.format( m );
+			check( text.equals( expected ), "format " + expected );
+			StringBuilder appended = new StringBuilder( "<" );
+			MoneyFormat.format( m, appended );
+			check( appended.toString().equals( "<" + expected ), "format to Appendable " + expected );
+			int end = MoneyFormat.format( m, chars, 3 );
+			check( new String( chars, 3, end - 3 ).equals( expected ), "format to char[] " + expected );
+			check( m.toString().equals( m.getAmount().toPlainString() + " " + m.getCurrency().getSymbol() ), "toString " + expected );
+
+			Money parsed = MoneyFormat.parse( text, m.getRoundingStyle() );
+			// plain text has no exponent, so 1E+3 comes back as 1000
+			check( parsed.eq( m ) && parsed.getRoundingStyle() == m.getRoundingStyle(), "parse " + text );
+			check( parsed.getAmount().equals( new BigDecimal( m.getAmount().toPlainString() ) ), "parse keeps the scale " + text );
+			check( MoneyFormat.parse( "[" + text + "]", 1, text.length() + 1, m.getRoundingStyle() ).eq( m ), "parse a range " + text );
+		}
+		check( MoneyFormat.parse( "+.5 EUR" ).getAmount().equals( new BigDecimal( "0.5" ) ) && MoneyFormat.parse( "7. USD" ).getAmount().equals( new BigDecimal( "7" ) ), "parse short forms" );
+		check( MoneyFormat.parse( "0000000000000000000000001.25 USD" ).getAmount().equals( new BigDecimal( "1.25" ) ), "parse leading zeros" );
+		check( FastMoney.of( moneys.get( 0 ) ).toString().equals( moneys.get( 0 ).toString() ), "FastMoney toString" );
+
+		// the symbol follows the default locale
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault( Locale.US );
+			check( moneys.get( 0 ).toString().equals( "12.30 $" ), "toString with US symbol" );
+			Locale.setDefault( Locale.CANADA );
+			check( moneys.get( 0 ).toString().equals( "12.30 " + USD.getSymbol() ), "toString after a change of locale" );
+			// Currency.getSymbol() goes by the display locale, which can differ
+			Locale.setDefault( Locale.Category.DISPLAY, Locale.US );
+			check( moneys.get( 0 ).toString().equals( "12.30 $" ) && USD.getSymbol().equals( "$" ), "toString with the display locale" );
+		} finally {
+			Locale.setDefault( locale );
+		}
+
+		String[] malformed = { "", " USD", "12.30", "12.30USD", "12.30  USD", "12,30 USD", "1.2.3 USD", "- USD", ". USD", "1e3 USD", "12.30 usd", "12.30 US1" };
+		for (String text : malformed) {
+			try {
+				MoneyFormat.parse( text );
+				check( false, "parse must reject '" + text + "'" );
+			} catch (NumberFormatException e) { }
+		}
+		String[] invalid = { "12.30 AAA", "12.345 USD", "1.5 JPY" };
+		for (String text : invalid) {
+			try {
+				MoneyFormat.parse( text );
+				check( false, "parse must reject '" + text + "'" );
+			} catch (IllegalArgumentException e) { }
+		}
+		try {
+			MoneyFormat.format( moneys.get( 0 ), new char[12], 4 );
+			check( false, "format must not write past the array" );
+		} catch (IndexOutOfBoundsException e) { }
+	}
+
+	static void testMoneyAccumulator()
+	{
+		// same as the chain of plus, minus and times calls it replaces
+		Random rnd = new Random( 21 );
+		RoundingMode[] roundings = { RoundingMode.HALF_EVEN, RoundingMode.HALF_UP, RoundingMode.FLOOR, RoundingMode.UP };
+		for (RoundingMode rounding : roundings)
+		{
+			MoneyAccumulator acc = new MoneyAccumulator( USD, rounding );
+			Money expected = new Money( BigDecimal.ZERO, USD, rounding );
+			check( acc.toMoney().equals( expected ) && acc.signum() == 0, "empty accumulator" );
+			for (int i = 0; i < 5000; ++i)
+			{
+				// large amounts now and then, to spill past a long
+				long unscaled = i % 500 == 499 ? Long.MAX_VALUE - rnd.nextInt( 1000 ) : rnd.nextInt( 2000000 ) - 1000000;
+				Money m = new Money( BigDecimal.valueOf( unscaled, rnd.nextInt( 3 ) ), USD, rounding );
+				switch (rnd.nextInt( 5 ))
+				{
+					case 0: acc.add( m ); expected = expected.plus( m ); break;
+					case 1: acc.subtract( m ); expected = expected.minus( m ); break;
+					case 2: {
+						int quantity = rnd.nextInt( 2001 ) - 1000;
+						acc.addProduct( m, quantity );
+						expected = expected.plus( m.times( quantity ) );
+						break;
+					}
+					case 3: {
+						long factor = rnd.nextInt( 100000 ) - 50000;
+						int scale = rnd.nextInt( 7 );
+						acc.addProduct( m, factor, scale );
+						expected = expected.plus( new Money( m.getAmount(), USD, rounding ).times( factor, scale ) );
+						break;
+					}
+					default: {
+						long cents = rnd.nextInt( 20000 ) - 10000;
+						acc.add( cents );
+						acc.subtract( cents / 2 );
+						expected = expected.plus( new Money( BigDecimal.valueOf( cents - cents / 2, 2 ), USD, rounding ) );
+					}
+				}
+			}
+			check( acc.toMoney().equals( expected ), "accumulator " + rounding );
+			check( acc.signum() == expected.getAmount().signum(), "accumulator signum " + rounding );
+		}
+
+		MoneyAccumulator acc = new MoneyAccumulator( USD );
+		acc.add( new Money( new BigDecimal( "10" ), USD ) );
+		acc.subtract( 250 );
+		check( acc.getMinorUnits() == 750 && acc.toMoney().getAmount().toPlainString().equals( "7.50" ), "minor units" );
+		acc.addProduct( new Money( new BigDecimal( "1234.56" ), USD ), 175, 4 );
+		check( acc.toMoney().equals( new Money( new BigDecimal( "29.10" ), USD ) ), "addProduct with a rate" );
+		acc.addProduct( new Money( BigDecimal.ONE, USD ), 3, -2 );
+		check( acc.getMinorUnits() == 32910, "addProduct with a negative scale" );
+		acc.addProduct( new Money( new BigDecimal( "1000000" ), USD ), Long.MAX_VALUE );
+		try {
+			acc.getMinorUnits();
+			check( false, "getMinorUnits must reject totals past a long" );
+		} catch (ArithmeticException e) { }
+		acc.reset();
+		check( acc.toMoney().equals( new Money( BigDecimal.ZERO, USD ) ), "reset" );
+		try {
+			acc.add( new Money( BigDecimal.ONE, EUR ) );
+			check( false, "accumulator must reject other currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+	}
+
+	static void testMoneyAdder() throws Exception
+	{
+		// many threads adding and subtracting at once, with a reader taking partial totals
+		final MoneyAdder adder = new MoneyAdder( USD );
+		final int threads = 8;
+		final int perThread = 20000;
+		final Money[] expected = new Money[threads];
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; ++t)
+		{
+			final int id = t;
+			workers.add( new Thread() {
+				public void run() {
+					Random rnd = new Random( id );
+					long cents = 0;
+					for (int i = 0; i < perThread; ++i) {
+						int amount = rnd.nextInt( 100000 );
+						if (i % 10 == 9) {
+							adder.subtract( Money.of( amount, USD ) );
+							cents -= amount;
+						} else if (i % 2 == 0) {
+							adder.add( Money.of( amount, USD ) );
+							cents += amount;
+						} else {
+							adder.add( amount );
+							cents += amount;
+						}
+					}
+					expected[id] = Money.of( cents, USD );
+				}
+			} );
+		}
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		Money partial = adder.sum();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		check( partial.getCurrency() == USD, "partial sum" );
+		Money total = Money.sum( Arrays.asList( expected ), USD );
+		check( adder.sum().equals( total ), "concurrent sum" );
+		check( adder.sumThenReset().equals( total ) && adder.sum().equals( Money.of( 0, USD ) ), "sumThenReset" );
+
+		// past a long, and back
+		adder.add( Long.MAX_VALUE );
+		adder.add( Long.MAX_VALUE );
+		adder.add( new Money( new BigDecimal( "98765432109876543210.99" ), USD ) );
+		BigDecimal big = BigDecimal.valueOf( Long.MAX_VALUE, 2 ).multiply( BigDecimal.valueOf( 2 ) ).add( new BigDecimal( "98765432109876543210.99" ) );
+		check( adder.sum().getAmount().equals( big ), "sum past a long" );
+		adder.subtract( new Money( new BigDecimal( "98765432109876543210.99" ), USD ) );
+		adder.add( -Long.MAX_VALUE );
+		adder.add( -Long.MAX_VALUE );
+		check( adder.sum().equals( Money.of( 0, USD ) ), "sum back to zero" );
+		try {
+			adder.add( new Money( BigDecimal.ONE, EUR ) );
+			check( false, "adder must reject other currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+	}
+
+	static void testAllocate()
+	{
+		Money hundred = new Money( new BigDecimal( "100" ), USD );
+		check( Arrays.toString( hundred.allocate( 3 ) ).equals( Arrays.toString( new Money[] { Money.of( 3334, USD ), Money.of( 3333, USD ), Money.of( 3333, USD ) } ) ), "allocate in 3" );
+		check( Arrays.equals( Money.of( -5, USD ).allocate( new long[] { 70, 30 } ), new Money[] { Money.of( -4, USD ), Money.of( -1, USD ) } ), "allocate 70:30" );
+		check( Arrays.equals( Money.of( 10, USD ).allocate( new long[] { 0, 1, 0 } ), new Money[] { Money.of( 0, USD ), Money.of( 10, USD ), Money.of( 0, USD ) } ), "allocate with zero ratios" );
+
+		// against a plain largest remainder split, in BigIntegers
+		Random rnd = new Random( 23 );
+		for (int round = 0; round < 3000; ++round)
+		{
+			long[] ratios = new long[1 + rnd.nextInt( 8 )];
+			for (int i = 0; i < ratios.length; ++i) {
+				ratios[i] = round % 3 == 0 ? rnd.nextInt( 4 ) : (rnd.nextLong() >>> 1 + rnd.nextInt( 63 ));
+			}
+			ratios[rnd.nextInt( ratios.length )] |= 1;
+			BigInteger total = BigInteger.valueOf( rnd.nextLong() >> rnd.nextInt( 64 ) );
+			if (round % 10 == 0) {
+				total = total.multiply( BigInteger.valueOf( Long.MAX_VALUE ) );
+			}
+			Money m = new Money( new BigDecimal( total, 2 ), USD );
+			Money[] parts = round % 2 == 0 ? m.allocate( ratios ) : m.allocate( ratios.length );
+			long[] used = round % 2 == 0 ? ratios : ones( ratios.length );
+			BigInteger[] expected = largestRemainder( total, used );
+			for (int i = 0; i < parts.length; ++i) {
+				check( parts[i].equals( new Money( new BigDecimal( expected[i], 2 ), USD ) ), "allocate " + m + " by " + Arrays.toString( used ) );
+			}
+		}
+
+		String[] invalid = { "parts", "none", "negative", "zeros" };
+		for (String what : invalid) {
+			try {
+				if (what.equals( "parts" )) hundred.allocate( 0 );
+				if (what.equals( "none" )) hundred.allocate( new long[0] );
+				if (what.equals( "negative" )) hundred.allocate( new long[] { 2, -1 } );
+				if (what.equals( "zeros" )) hundred.allocate( new long[] { 0, 0 } );
+				check( false, "allocate must reject " + what );
+			} catch (IllegalArgumentException e) { }
+		}
+	}
+
+	static void testCurrencyConverter() throws Exception
+	{
+		final Map<String, BigDecimal> rates = new HashMap<String, BigDecimal>();
+		rates.put( "USD/EUR", new BigDecimal( "0.9213" ) );
+		rates.put( "EUR/JPY", new BigDecimal( "161.357" ) );
+		rates.put( "JPY/USD", new BigDecimal( "0.0067" ) );
+		rates.put( "EUR/USD", new BigDecimal( "12345678901234567890.5" ) );
+		final AtomicInteger lookups = new AtomicInteger();
+		ExchangeRateProvider provider = new ExchangeRateProvider() {
+			public BigDecimal getRate( Currency from, Currency to ) {
+				lookups.incrementAndGet();
+				return rates.get( from + "/" + to );
+			}
+		};
+		CurrencyConverter converter = new CurrencyConverter( provider, 1, TimeUnit.HOURS, RoundingMode.HALF_UP );
+
+		check( converter.convert( new Money( new BigDecimal( "100" ), USD ), EUR ).equals( halfUp( "92.13", EUR ) ), "convert" );
+		check( converter.convert( new Money( new BigDecimal( "0.05" ), USD ), EUR ).equals( halfUp( "0.05", EUR ) ), "convert rounds half up" );
+		check( converter.convert( new Money( new BigDecimal( "-0.05" ), USD ), EUR ).equals( halfUp( "-0.05", EUR ) ), "convert negative" );
+		check( converter.convert( new Money( new BigDecimal( "10.01" ), EUR ), JPY ).equals( halfUp( "1615", JPY ) ), "convert to fewer decimals" );
+		check( converter.convert( new Money( new BigDecimal( "1234" ), JPY ), USD ).equals( halfUp( "8.27", USD ) ), "convert to more decimals" );
+		check( converter.convert( new Money( new BigDecimal( "2" ), EUR ), USD ).getAmount().equals( new BigDecimal( "24691357802469135781.00" ) ), "convert at a rate past a long" );
+		Money same = new Money( BigDecimal.ONE, EUR );
+		check( converter.convert( same, EUR ) == same, "convert to the same currency" );
+		check( lookups.get() == 4, "rates are cached" );
+		check( converter.getRate( USD, EUR ).equals( new BigDecimal( "0.9213" ) ) && lookups.get() == 4, "getRate" );
+
+		// against BigDecimal, including amounts past a long
+		Random rnd = new Random( 24 );
+		Money[] batch = new Money[2000];
+		for (int i = 0; i < batch.length; ++i) {
+			long cents = rnd.nextLong() >> rnd.nextInt( 64 );
+			batch[i] = i % 50 == 0
+				? new Money( new BigDecimal( BigInteger.valueOf( cents ).multiply( BigInteger.valueOf( Long.MAX_VALUE ) ), 2 ), USD )
+				: new Money( BigDecimal.valueOf( cents, rnd.nextInt( 3 ) ), i % 3 == 0 ? EUR : USD );
+		}
+		Money[] converted = converter.convert( batch, EUR );
+		for (int i = 0; i < batch.length; ++i) {
+			Money expected = batch[i].getCurrency() == EUR
+				? batch[i]
+				: new Money( batch[i].getAmount().multiply( rates.get( "USD/EUR" ) ).setScale( 2, RoundingMode.HALF_UP ), EUR, RoundingMode.HALF_UP );
+			check( converted[i].equals( expected ) && converted[i].getRoundingStyle() == expected.getRoundingStyle(), "batch convert " + batch[i] );
+		}
+
+		// a new rate is picked up once the old one expires, or is dropped
+		rates.put( "USD/EUR", new BigDecimal( "0.95" ) );
+		check( converter.convert( Money.of( 10000, USD ), EUR ).equals( halfUp( "92.13", EUR ) ), "rate kept until it expires" );
+		converter.invalidate( USD, EUR );
+		check( converter.convert( Money.of( 10000, USD ), EUR ).equals( halfUp( "95.00", EUR ) ), "invalidate" );
+		CurrencyConverter shortLived = new CurrencyConverter( provider, 1, TimeUnit.MILLISECONDS );
+		shortLived.convert( Money.of( 10000, USD ), EUR );
+		rates.put( "USD/EUR", new BigDecimal( "0.9" ) );
+		Thread.sleep( 5 );
+		check( shortLived.convert( Money.of( 10000, USD ), EUR ).equals( new Money( new BigDecimal( "90.00" ), EUR ) ), "rate expires" );
+
+		MoneyColumn column = new MoneyColumn( USD, RoundingMode.HALF_EVEN );
+		for (int i = 0; i < 2000; ++i) {
+			column.add( rnd.nextLong() >> ( 12 + rnd.nextInt( 52 ) ) );
+		}
+		MoneyColumn columnInEur = converter.convert( column, EUR );
+		check( columnInEur.getCurrency() == EUR && columnInEur.getRoundingStyle() == RoundingMode.HALF_UP && columnInEur.size() == column.size(), "column convert" );
+		for (int i = 0; i < column.size(); ++i) {
+			check( columnInEur.get( i ).equals( converter.convert( column.get( i ), EUR ) ), "column convert " + column.get( i ) );
+		}
+		check( converter.convert( columnInEur, EUR ).toArray().length == column.size(), "column convert to the same currency" );
+
+		// a rate asked for before an invalidation is not cached after it
+		final CurrencyConverter[] racing = new CurrencyConverter[1];
+		racing[0] = new CurrencyConverter( new ExchangeRateProvider() {
+			public BigDecimal getRate( Currency from, Currency to ) {
+				lookups.incrementAndGet();
+				racing[0].invalidate( from, to );
+				return rates.get( from + "/" + to );
+			}
+		}, 1, TimeUnit.HOURS );
+		lookups.set( 0 );
+		racing[0].convert( Money.of( 100, USD ), EUR );
+		racing[0].convert( Money.of( 100, USD ), EUR );
+		check( lookups.get() == 2, "invalidate during a lookup" );
+
+		String[] invalid = { "no rate", "zero rate" };
+		rates.put( "USD/JPY", BigDecimal.ZERO );
+		for (String what : invalid) {
+			try {
+				converter.convert( Money.of( 100, what.equals( "no rate" ) ? JPY : USD ), what.equals( "no rate" ) ? EUR : JPY );
+				check( false, "convert must reject " + what );
+			} catch (IllegalArgumentException e) { }
+		}
+	}
+
+	static Money halfUp( String amount, Currency currency )
+	{
+		return new Money( new BigDecimal( amount ), currency, RoundingMode.HALF_UP );
+	}
+
+	static void testMoneyWindow()
+	{
+		// 3 buckets of 10: times 0-9, 10-19, 20-29
+		MoneyWindow window = new MoneyWindow( USD, 10, 3 );
+		check( window.getTotal().equals( new Money( new BigDecimal( "0.00" ), USD ) ) && window.getWindowStart() == Long.MIN_VALUE, "empty window" );
+		check( window.add( Money.of( 100, USD ), 5 ) && window.add( 250, 12 ) && window.add( Money.of( 1, USD ), 29 ), "add" );
+		check( window.getTotal().equals( Money.of( 351, USD ) ) && window.getWindowStart() == 0, "total" );
+		check( window.getBucketTotal( 15 ).equals( Money.of( 250, USD ) ) && window.getBucketTotal( 99 ).equals( Money.of( 0, USD ) ), "bucket total" );
+		check( window.getTotal( 30 ).equals( Money.of( 251, USD ) ) && window.getWindowStart() == 10, "slide" );
+		check( ! window.add( Money.of( 7, USD ), 9 ) && window.getTotal().equals( Money.of( 251, USD ) ), "late amounts are ignored" );
+		check( window.add( Money.of( 7, USD ), 10 ) && window.getTotal().equals( Money.of( 258, USD ) ), "oldest bucket still open" );
+		check( window.getTotal( 1000 ).equals( Money.of( 0, USD ) ), "jump past the window" );
+		window.reset();
+		check( window.add( Money.of( -5, USD ), -1 ) && window.getWindowStart() == -30 && window.getBucketTotal( -10 ).equals( Money.of( -5, USD ) ), "negative times" );
+
+		// sliding and tumbling, against summing the amounts in the window
+		Random rnd = new Random( 25 );
+		int[][] shapes = { { 7, 5 }, { 60, 1 }, { 1, 16 } };
+		for (int[] shape : shapes)
+		{
+			long width = shape[0];
+			int count = shape[1];
+			MoneyWindow w = new MoneyWindow( USD, width, count );
+			List<Money> amounts = new ArrayList<Money>();
+			List<Long> times = new ArrayList<Long>();
+			long now = -500;
+			for (int i = 0; i < 5000; ++i)
+			{
+				now += rnd.nextInt( 10 ) == 0 ? rnd.nextInt( 200 ) : rnd.nextInt( 3 );
+				long time = now - rnd.nextInt( (int)width * count + 10 );
+				Money m = i % 100 == 0
+					? new Money( new BigDecimal( BigInteger.valueOf( rnd.nextLong() ).multiply( BigInteger.valueOf( Long.MAX_VALUE ) ), 2 ), USD )
+					: new Money( BigDecimal.valueOf( rnd.nextInt( 200000 ) - 100000, rnd.nextInt( 3 ) ), USD );
+				w.advanceTo( now );
+				long start = w.getWindowStart();
+				check( w.add( m, time ) == ( time >= start ), "late " + time + " before " + start );
+				amounts.add( m );
+				times.add( time );
+				if (i % 7 == 0)
+				{
+					List<Money> in = new ArrayList<Money>();
+					for (int k = 0; k < amounts.size(); ++k) {
+						if (times.get( k ) >= start && Math.floor( times.get( k ) / (double)width ) <= Math.floor( now / (double)width )) {
+							in.add( amounts.get( k ) );
+						}
+					}
+					check( w.getTotal().eq( Money.sum( in, USD ) ), "window total " + width + "x" + count + " at " + now );
+				}
+			}
+		}
+		try {
+			window.add( new Money( BigDecimal.ONE, EUR ), 0 );
+			check( false, "window must reject other currencies" );
+		} catch (Money.MismatchedCurrencyException e) { }
+		try {
+			new MoneyWindow( USD, 0, 1 );
+			check( false, "window must reject a zero width" );
+		} catch (IllegalArgumentException e) { }
+	}
+
+	static long[] ones( int n )
+	{
+		long[] result = new long[n];
+		Arrays.fill( result, 1 );
+		return result;
+	}
+
+	static BigInteger[] largestRemainder( BigInteger total, long[] ratios )
+	{
+		BigInteger sum = BigInteger.ZERO;
+		for (long r : ratios) {
+			sum = sum.add( BigInteger.valueOf( r ) );
+		}
+		final BigInteger[] shares = new BigInteger[ratios.length];
+		final BigInteger[] remainders = new BigInteger[ratios.length];
+		BigInteger left = total.abs();
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < ratios.length; ++i) {
+			BigInteger[] qr = total.abs().multiply( BigInteger.valueOf( ratios[i] ) ).divideAndRemainder( sum );
+			shares[i] = qr[0];
+			remainders[i] = qr[1];
+			left = left.subtract( qr[0] );
+			order.add( i );
+		}
+		// stable, so the earlier part comes first among equal remainders
+		Collections.sort( order, new java.util.Comparator<Integer>() {
+			public int compare( Integer a, Integer b ) { return remainders[b].compareTo( remainders[a] ); }
+		} );
+		for (int k = 0; k < left.intValue(); ++k) {
+			shares[order.get( k )] = shares[order.get( k )].add( BigInteger.ONE );
+		}
+		for (int i = 0; i < shares.length; ++i) {
+			shares[i] = total.signum() < 0 ? shares[i].negate() : shares[i];
+		}
+		return shares;
+	}
+
+	static void check( boolean condition, String what )
+	{
+		if (! condition) {
+			throw new RuntimeException( "Check failed: " + what );
+		}
+	}
+}
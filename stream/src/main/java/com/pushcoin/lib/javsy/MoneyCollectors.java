@@ -0,0 +1,115 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+* {@link Collector}s totalling streams of {@link Money}.
+*
+* <P>Unlike <tt>reduce(Money::plus)</tt>, these create no <tt>Money</tt> per element:
+* they accumulate minor units in a {@link MoneySummaryStatistics} or a {@link MoneyBag},
+* and build the result once, at the end. Partial results of parallel streams are
+* combined without rescanning. All collectors but {@link #groupingByCurrency()},
+* whose result follows the encounter order, are unordered.
+*
+* <P>Totals equal those of {@link Money#sum}: they have the largest scale of the amounts
+* summed, and the default rounding style set by {@link Money#init}.
+*/
+public final class MoneyCollectors {
+
+  /**
+  * Sum of the amounts, all of which must be in <tt>aCurrency</tt>;
+  * zero in <tt>aCurrency</tt> for an empty stream.
+  */
+  public static Collector<Money, ?, Money> summing(Currency aCurrency){
+    return Collector.of(
+      () -> new MoneySummaryStatistics(aCurrency),
+      MoneySummaryStatistics::accept,
+      MoneyCollectors::combine,
+      MoneySummaryStatistics::getSum,
+      Collector.Characteristics.UNORDERED
+    );
+  }
+
+  /**
+  * Average of the amounts, all of which must be in <tt>aCurrency</tt>;
+  * see {@link MoneySummaryStatistics#getAverage()}.
+  */
+  public static Collector<Money, ?, Money> averaging(Currency aCurrency){
+    return Collector.of(
+      () -> new MoneySummaryStatistics(aCurrency),
+      MoneySummaryStatistics::accept,
+      MoneyCollectors::combine,
+      MoneySummaryStatistics::getAverage,
+      Collector.Characteristics.UNORDERED
+    );
+  }
+
+  /** Count, sum, minimum, maximum and average of the amounts, all of which must be in <tt>aCurrency</tt>. */
+  public static Collector<Money, ?, MoneySummaryStatistics> summarizing(Currency aCurrency){
+    return Collector.of(
+      () -> new MoneySummaryStatistics(aCurrency),
+      MoneySummaryStatistics::accept,
+      MoneyCollectors::combine,
+      Collector.Characteristics.UNORDERED,
+      Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  /**
+  * Totals per currency, of amounts in any currencies, in the order their currencies
+  * were first met.
+  */
+  public static Collector<Money, ?, Map<Currency, Money>> groupingByCurrency(){
+    return Collector.of(
+      MoneyBag::new,
+      MoneyBag::add,
+      MoneyCollectors::merge,
+      MoneyBag::toMap
+    );
+  }
+
+  /** Totals per currency, as a {@link MoneyBag}. */
+  public static Collector<Money, ?, MoneyBag> toMoneyBag(){
+    return Collector.of(
+      MoneyBag::new,
+      MoneyBag::add,
+      MoneyCollectors::merge,
+      Collector.Characteristics.UNORDERED,
+      Collector.Characteristics.IDENTITY_FINISH
+    );
+  }
+
+  // PRIVATE //
+
+  private MoneyCollectors() {}
+
+  private static MoneySummaryStatistics combine(MoneySummaryStatistics aLeft, MoneySummaryStatistics aRight){
+    aLeft.combine(aRight);
+    return aLeft;
+  }
+
+  private static MoneyBag merge(MoneyBag aLeft, MoneyBag aRight){
+    aLeft.merge(aRight);
+    return aLeft;
+  }
+}
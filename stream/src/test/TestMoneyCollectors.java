@@ -0,0 +1,103 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+import com.pushcoin.lib.javsy.Money;
+import com.pushcoin.lib.javsy.MoneyCollectors;
+import com.pushcoin.lib.javsy.MoneySummaryStatistics;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+	Checks the collectors, sequential and parallel, against Money.sum.
+*/
+public final class TestMoneyCollectors
+{
+	static final Currency USD = Currency.getInstance( "USD" );
+	static final Currency EUR = Currency.getInstance( "EUR" );
+
+	public static void main( String[] args )
+	{
+		try
+		{
+			Money.init( USD, RoundingMode.HALF_EVEN );
+			Random rnd = new Random( 5 );
+			List<Money> dollars = new ArrayList<Money>();
+			List<Money> mixed = new ArrayList<Money>();
+			for (int i = 0; i < 20000; ++i)
+			{
+				Money m = new Money( BigDecimal.valueOf( rnd.nextInt( 1000000 ) - 500000, rnd.nextInt( 3 ) ), i % 3 == 0 ? EUR : USD );
+				mixed.add( m );
+				if (m.getCurrency() == USD) {
+					dollars.add( m );
+				}
+			}
+			Money sum = Money.sum( dollars, USD );
+
+			check( dollars.stream().collect( MoneyCollectors.summing( USD ) ).equals( sum ), "summing" );
+			check( dollars.parallelStream().collect( MoneyCollectors.summing( USD ) ).equals( sum ), "parallel summing" );
+			check( dollars.parallelStream().collect( MoneyCollectors.averaging( USD ) ).equals( sum.div( dollars.size() ) ), "averaging" );
+
+			MoneySummaryStatistics stats = dollars.parallelStream().collect( MoneyCollectors.summarizing( USD ) );
+			check( stats.getCount() == dollars.size(), "summarizing count" );
+			check( stats.getMin().eq( Collections.min( dollars ) ) && stats.getMax().eq( Collections.max( dollars ) ), "summarizing min, max" );
+
+			Map<Currency, Money> totals = mixed.parallelStream().collect( MoneyCollectors.groupingByCurrency() );
+			Map<Currency, List<Money>> groups = mixed.stream().collect( Collectors.groupingBy( Money::getCurrency ) );
+			check( totals.size() == 2, "grouping size" );
+			// parallel grouping keeps currencies in the order first met, wherever that is
+			for (int round = 0; round < 6; ++round) {
+				List<Money> rotated = new ArrayList<Money>( mixed );
+				Collections.rotate( rotated, round );
+				List<Currency> firstMet = new ArrayList<Currency>( new LinkedHashSet<Currency>( rotated.stream().map( Money::getCurrency ).collect( Collectors.toList() ) ) );
+				check( new ArrayList<Currency>( rotated.parallelStream().collect( MoneyCollectors.groupingByCurrency() ).keySet() ).equals( firstMet ), "grouping in encounter order" );
+			}
+			for (Currency currency : groups.keySet()) {
+				check( totals.get( currency ).equals( Money.sum( groups.get( currency ), currency ) ), "grouping " + currency );
+			}
+
+			check( new ArrayList<Money>().stream().collect( MoneyCollectors.summing( EUR ) ).equals( Money.sum( new ArrayList<Money>(), EUR ) ), "summing nothing" );
+			try {
+				mixed.parallelStream().collect( MoneyCollectors.summing( USD ) );
+				check( false, "summing must reject mismatched currencies" );
+			} catch (Money.MismatchedCurrencyException e) { }
+
+			System.exit(0);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			System.err.println( "Basic error: " + e );
+			System.exit(1);
+		}
+	}
+
+	static void check( boolean condition, String what )
+	{
+		if (! condition) {
+			throw new RuntimeException( "Check failed: " + what );
+		}
+	}
+}
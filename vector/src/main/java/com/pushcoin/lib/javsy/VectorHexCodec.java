@@ -0,0 +1,148 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+package com.pushcoin.lib.javsy;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.B2S;
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.I2B;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.S2B;
+
+/**
+	Hex codec on the Vector API, loaded by Binascii through reflection.
+
+	Glyphs are computed arithmetically ('0' + n, plus 39 for n > 9) rather
+	than looked up, and the high/low nibble of each byte are interleaved by
+	widening bytes to 16-bit lanes. Decoding validates whole blocks with
+	range compares and leaves any block with a bad digit to Binascii, which
+	reports its index.
+*/
+final class VectorHexCodec implements HexBulkCodec
+{
+	/** One 16-bit lane per input byte when encoding, per digit when decoding chars. */
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+	/** Same width as SHORTS, one lane per digit when decoding ASCII. */
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+	/** One byte lane per 16-bit lane of SHORTS. */
+	private static final VectorSpecies<Byte> HALF_BYTES =
+		VectorSpecies.of( byte.class, VectorShape.forBitSize( SHORTS.vectorBitSize() / 2 ) );
+
+	/** One byte lane per 32-bit lane of an IntVector as wide as SHORTS. */
+	private static final VectorSpecies<Byte> QUARTER_BYTES =
+		VectorSpecies.of( byte.class, VectorShape.forBitSize( SHORTS.vectorBitSize() / 4 ) );
+
+	/** Binary bytes handled per step, also the number of digits per char vector. */
+	private static final int STEP = SHORTS.length();
+
+	VectorHexCodec()
+	{
+		// narrower shapes have no byte species a quarter wide
+		if (SHORTS.vectorBitSize() < 256) {
+			throw new UnsupportedOperationException( "Vector shape too narrow: " + SHORTS );
+		}
+	}
+
+	public int hexlify(byte[] src, int srcOff, int len, char[] dst, int dstOff)
+	{
+		final int blocks = len - len % STEP;
+		for (int i = 0; i < blocks; i += STEP)
+		{
+			ByteVector ascii = glyphs( src, srcOff + i );
+			((ShortVector) ascii.convertShape( B2S, SHORTS, 0 )).intoCharArray( dst, dstOff + 2*i );
+			((ShortVector) ascii.convertShape( B2S, SHORTS, 1 )).intoCharArray( dst, dstOff + 2*i + STEP );
+		}
+		return blocks;
+	}
+
+	public int hexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		final int blocks = len - len % STEP;
+		for (int i = 0; i < blocks; i += STEP) {
+			glyphs( src, srcOff + i ).intoArray( dst, dstOff + 2*i );
+		}
+		return blocks;
+	}
+
+	public int unhexlify(byte[] src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		final int digits = BYTES.length();
+		final int blocks = len - len % digits;
+		int i = 0;
+		for (; i < blocks; i += digits)
+		{
+			ByteVector chr = ByteVector.fromArray( BYTES, src, srcOff + i );
+			ByteVector folded = chr.or( (byte) 0x20 );
+			VectorMask<Byte> digit = chr.compare( GE, (byte) '0' ).and( chr.compare( LE, (byte) '9' ) );
+			VectorMask<Byte> alpha = folded.compare( GE, (byte) 'a' ).and( folded.compare( LE, (byte) 'f' ) );
+			if (! digit.or( alpha ).allTrue()) {
+				break;
+			}
+
+			// pair up nibbles: low byte of each 16-bit lane is the high nibble
+			ShortVector pairs = folded.sub( (byte) ('a' - 10) ).blend( chr.sub( (byte) '0' ), digit ).reinterpretAsShorts();
+			ShortVector value = pairs.and( (short) 0x0f ).lanewise( LSHL, 4 ).or( pairs.lanewise( LSHR, 8 ) );
+			((ByteVector) value.convertShape( S2B, HALF_BYTES, 0 )).intoArray( dst, dstOff + i/2 );
+		}
+		return i;
+	}
+
+	public int unhexlify(char[] src, int srcOff, int len, byte[] dst, int dstOff)
+	{
+		final int blocks = len - len % STEP;
+		int i = 0;
+		for (; i < blocks; i += STEP)
+		{
+			ShortVector chr = ShortVector.fromCharArray( SHORTS, src, srcOff + i );
+			ShortVector folded = chr.or( (short) 0x20 );
+			VectorMask<Short> digit = chr.compare( GE, (short) '0' ).and( chr.compare( LE, (short) '9' ) );
+			VectorMask<Short> alpha = folded.compare( GE, (short) 'a' ).and( folded.compare( LE, (short) 'f' ) );
+			if (! digit.or( alpha ).allTrue()) {
+				break;
+			}
+
+			// pair up nibbles: low half of each 32-bit lane is the high nibble
+			IntVector pairs = folded.sub( (short) ('a' - 10) ).blend( chr.sub( (short) '0' ), digit ).reinterpretAsInts();
+			IntVector value = pairs.and( 0x0f ).lanewise( LSHL, 4 ).or( pairs.lanewise( LSHR, 16 ) );
+			((ByteVector) value.convertShape( I2B, QUARTER_BYTES, 0 )).intoArray( dst, dstOff + i/2 );
+		}
+		return i;
+	}
+
+	/** Hex digits of STEP bytes starting at src[off], as ASCII in output order. */
+	private static ByteVector glyphs(byte[] src, int off)
+	{
+		ShortVector wide = (ShortVector) ByteVector.fromArray( HALF_BYTES, src, off ).convertShape( B2S, SHORTS, 0 );
+		// high nibble into the low byte, which comes first in memory
+		ShortVector nibbles = wide.lanewise( LSHR, 4 ).and( (short) 0x0f ).or( wide.and( (short) 0x0f ).lanewise( LSHL, 8 ) );
+		ByteVector n = nibbles.reinterpretAsBytes();
+		return n.add( (byte) '0' ).add( (byte) ('a' - '0' - 10), n.compare( GT, (byte) 9 ) );
+	}
+}
@@ -0,0 +1,123 @@
+// Copyright (c) 2014 PushCoin, Inc.
+//
+// GNU General Public Licence (GPL)
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software
+// Foundation; either version 2 of the License, or (at your option) any later
+// version.
+// This program is distributed in the hope that it will be useful, but WITHOUT
+// ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+// FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more
+// details.
+// You should have received a copy of the GNU General Public License along with
+// this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+// Place, Suite 330, Boston, MA  02111-1307  USA
+//
+// __author__  = '''Slawomir Lisznianski <sl@pushcoin.com>'''
+
+import com.pushcoin.lib.javsy.Binascii;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+	Checks that Binascii picked up the vector codec, that the codec encodes
+	whole blocks itself, and that Binascii with it plugged in agrees with a
+	plain reference across sizes and offsets that exercise block tails.
+	Run with: java --add-modules jdk.incubator.vector TestVectorHexCodec
+*/
+public final class TestVectorHexCodec
+{
+	public static void main( String[] args ) 
+	{
+		try 
+		{
+			// without these a silent fallback to the scalar loops would pass too
+			Object codec = bulkCodec();
+			check( codec != null && codec.getClass().getName().equals( "com.pushcoin.lib.javsy.VectorHexCodec" ),
+				"VectorHexCodec is installed, got " + codec );
+
+			byte[] block = new byte[256];
+			new Random( 7 ).nextBytes( block );
+			char[] blockChars = new char[block.length * 2];
+			Method hexlify = codec.getClass().getMethod( "hexlify", byte[].class, int.class, int.class, char[].class, int.class );
+			hexlify.setAccessible( true );
+			int done = (Integer) hexlify.invoke( codec, block, 0, block.length, blockChars, 0 );
+			check( done > 0 && done <= block.length, "VectorHexCodec encodes whole blocks, did " + done );
+			check( reference( block, 0, done ).equals( new String( blockChars, 0, done * 2 ) ), "VectorHexCodec hexlify char[]" );
+
+			Random rnd = new Random( 42 );
+			for (int size = 0; size < 600; size += 1 + size / 8)
+			{
+				byte[] raw = new byte[size + 3];
+				rnd.nextBytes( raw );
+				String expected = reference( raw, 3, size );
+
+				char[] chars = new char[size * 2 + 1];
+				Binascii.hexlify( raw, 3, size, chars, 1 );
+				check( expected.equals( new String( chars, 1, size * 2 ) ), "hexlify char[] size " + size );
+
+				byte[] ascii = new byte[size * 2 + 5];
+				Binascii.hexlify( raw, 3, size, ascii, 5 );
+				check( expected.equals( new String( ascii, 5, size * 2, "US-ASCII" ) ), "hexlify byte[] size " + size );
+
+				byte[] decoded = new byte[size];
+				Binascii.unhexlify( ascii, 5, size * 2, decoded, 0 );
+				check( Arrays.equals( Arrays.copyOfRange( raw, 3, size + 3 ), decoded ), "unhexlify byte[] size " + size );
+
+				char[] upper = ("x" + expected.toUpperCase()).toCharArray();
+				Arrays.fill( decoded, (byte) 0 );
+				Binascii.unhexlify( CharBuffer.wrap( upper ), 1, size * 2, decoded, 0 );
+				check( Arrays.equals( Arrays.copyOfRange( raw, 3, size + 3 ), decoded ), "unhexlify char[] size " + size );
+
+				// a bad digit anywhere must be reported at its own index
+				for (int bad = 0; bad < size * 2; bad += 1 + size / 3)
+				{
+					char[] corrupt = expected.toCharArray();
+					corrupt[bad] = (bad % 2 == 0 ? 'g' : '\u0130');
+					try {
+						Binascii.unhexlify( CharBuffer.wrap( corrupt ), 0, corrupt.length, decoded, 0 );
+						check( false, "unhexlify must reject index " + bad );
+					} catch (RuntimeException e) {
+						check( e.getMessage().endsWith( "at index " + bad ), "unhexlify reports index " + bad + ": " + e.getMessage() );
+					}
+				}
+			}
+			System.out.println( "All checks out!" );
+			System.exit(0);
+		} 
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			System.err.println( "Basic error: " + e );
+			System.exit(1);
+		}
+	}
+
+	/** The codec Binascii loaded, or null if it fell back to scalar code. */
+	static Object bulkCodec() throws Exception
+	{
+		Field bulk = Binascii.class.getDeclaredField( "bulk_" );
+		bulk.setAccessible( true );
+		return bulk.get( null );
+	}
+
+	static String reference( byte[] raw, int off, int len )
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = off; i < off + len; ++i) {
+			sb.append( String.format( "%02x", raw[i] ) );
+		}
+		return sb.toString();
+	}
+
+	static void check( boolean condition, String what )
+	{
+		if (! condition) {
+			throw new RuntimeException( "Check failed: " + what );
+		}
+	}
+}